@@ -0,0 +1,53 @@
+package com.example.logviewer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-level counts of the whole view: walking every entry versus reading the running buckets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregationBenchmark {
+    @Param({"100000", "1000000"})
+    public int entries;
+
+    private LogStore store;
+    private final PositionList positions = new PositionList();
+    private final long[] counts = new long[LogType.values().length];
+
+    @Setup
+    public void setUp() {
+        store = LogFixtures.createStore(entries);
+        for (long position = store.getStartPosition(); position < store.getEndPosition(); position++) {
+            positions.add(position);
+        }
+    }
+
+    @Benchmark
+    public Map<LogType, Integer> walkEntries() {
+        Map<LogType, Integer> result = new HashMap<>();
+        for (int i = 0; i < positions.size(); i++) {
+            LogType type = store.getType(positions.get(i));
+            result.put(type, result.getOrDefault(type, 0) + 1);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long[] minuteBuckets() {
+        store.getAggregates().getCountsSince(LogFixtures.START_TIMESTAMP, counts);
+        return counts;
+    }
+}
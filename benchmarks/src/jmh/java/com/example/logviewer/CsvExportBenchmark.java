@@ -0,0 +1,56 @@
+package com.example.logviewer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CSV export of the whole store into a discarding stream, so only formatting, quoting,
+ * encoding and (optionally) compression are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvExportBenchmark {
+    @Param({"100000"})
+    public int entries;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private LogStore store;
+    private LogFilter filter;
+
+    @Setup
+    public void setUp() {
+        store = LogFixtures.createStore(entries);
+        filter = new LogFilter(new HashSet<>(Arrays.asList(LogType.values())), 0, "");
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        OutputStream out = OutputStream.nullOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+            return CsvWriter.write(store, filter, writer, () -> false, (scanned, total) -> { });
+        }
+    }
+}
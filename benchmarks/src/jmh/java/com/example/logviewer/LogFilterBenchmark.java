@@ -0,0 +1,71 @@
+package com.example.logviewer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full filter pass over the store, as MainActivity runs it after the filter changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LogFilterBenchmark {
+    @Param({"100000", "1000000"})
+    public int entries;
+
+    private LogStore store;
+    private final PositionList result = new PositionList();
+    private LogFilter levelFilter;
+    private LogFilter tagFilter;
+    private LogFilter indexedSearch;
+    private LogFilter shortSearch;
+
+    @Setup
+    public void setUp() throws ParseException {
+        store = LogFixtures.createStore(entries);
+        HashSet<LogType> all = new HashSet<>(Arrays.asList(LogType.values()));
+        levelFilter = new LogFilter(EnumSet.of(LogType.WARNING, LogType.ERROR), 0, "");
+        tagFilter = new LogFilter(all, 0, LogQuery.parse("tag:Net* level>=INFO"), null);
+        indexedSearch = new LogFilter(all, 0, "timeout retry");
+        // Under three chars the trigram index cannot help, so every message is scanned
+        shortSearch = new LogFilter(all, 0, "mi");
+    }
+
+    @Benchmark
+    public PositionList levels() {
+        return run(levelFilter);
+    }
+
+    @Benchmark
+    public PositionList tags() {
+        return run(tagFilter);
+    }
+
+    @Benchmark
+    public PositionList searchIndexed() {
+        return run(indexedSearch);
+    }
+
+    @Benchmark
+    public PositionList searchScan() {
+        return run(shortSearch);
+    }
+
+    private PositionList run(LogFilter filter) {
+        result.clear();
+        filter.filterRange(store, store.getStartPosition(), store.getEndPosition(), result, () -> false);
+        return result;
+    }
+}
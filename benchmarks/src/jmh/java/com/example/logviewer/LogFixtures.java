@@ -0,0 +1,37 @@
+package com.example.logviewer;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic logs shared by the benchmarks.
+ */
+final class LogFixtures {
+    static final String[] TAGS = {"Net", "NetCache", "Db", "Ui", "Auth", "Sync", "Player", "Location"};
+    static final String[] WORDS = {"request", "response", "timeout", "cache", "miss", "hit", "user",
+            "session", "connected", "retry", "failed", "parsed", "frame", "dropped", "query", "commit"};
+    static final long START_TIMESTAMP = 1_700_000_000_000L;
+
+    private LogFixtures() {
+    }
+
+    /**
+     * A store holding exactly count entries, roughly 60 chars of message each, 1 ms apart.
+     */
+    static LogStore createStore(int count) {
+        LogStore store = new LogStore(count, (long) count * 160);
+        Random random = new Random(42);
+        LogType[] types = LogType.values();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            message.setLength(0);
+            for (int w = 0; w < 6; w++) {
+                message.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            message.append(i);
+            store.append(types[random.nextInt(types.length)], TAGS[random.nextInt(TAGS.length)],
+                    message.toString(), START_TIMESTAMP + i, i * 1_000_000L,
+                    "Worker" + random.nextInt(20) + ".java", random.nextInt(500));
+        }
+        return store;
+    }
+}
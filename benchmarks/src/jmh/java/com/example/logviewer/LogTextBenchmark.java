@@ -0,0 +1,36 @@
+package com.example.logviewer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-entry text work: ANSI stripping at ingest and display rendering for bound rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogTextBenchmark {
+    private final String plain = "User 4711 connected from 10.0.0.12 after 3 retries";
+    private final String colored = "\u001B[32mUser 4711\u001B[0m connected from \u001B[1;34m10.0.0.12\u001B[0m after 3 retries";
+
+    @Benchmark
+    public String stripAnsiPlain() {
+        return LogText.stripAnsiEscapeCodes(plain);
+    }
+
+    @Benchmark
+    public String stripAnsiColored() {
+        return LogText.stripAnsiEscapeCodes(colored);
+    }
+
+    @Benchmark
+    public String formatForDisplay() {
+        return LogText.formatForDisplay("Net", LogType.INFO, "2024-01-01 12:00:00.000", plain, "MainActivity.java", 128);
+    }
+}
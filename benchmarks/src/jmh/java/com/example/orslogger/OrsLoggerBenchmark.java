@@ -0,0 +1,69 @@
+package com.example.orslogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a log call on the calling thread, per level, with the minimum level at INFO so that
+ * VERBOSE and DEBUG measure the suppressed path. The sink discards records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrsLoggerBenchmark {
+    private static final String TAG = "Bench";
+
+    @Param({"VERBOSE", "DEBUG", "INFO", "WARNING", "ERROR"})
+    public OrsLogger.LogType level;
+
+    @Param({"OFF", "ALWAYS"})
+    public OrsLogger.CallerLocation callerLocation;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        OrsLogger.init(batch -> { }, new OrsLogger.Config()
+                .setAsync(async)
+                .setCallerLocation(callerLocation)
+                .setMinLevel(OrsLogger.LogType.INFO)
+                .setConsoleOutput(false));
+    }
+
+    @Benchmark
+    public void log() {
+        OrsLogger.log(level, TAG, "Request finished", null);
+    }
+
+    @Benchmark
+    public void logTemplate() {
+        switch (level) {
+            case VERBOSE:
+                OrsLogger.v(TAG, "Request {} finished", counter++);
+                break;
+            case DEBUG:
+                OrsLogger.d(TAG, "Request {} finished", counter++);
+                break;
+            case INFO:
+                OrsLogger.i(TAG, "Request {} finished", counter++);
+                break;
+            case WARNING:
+                OrsLogger.w(TAG, "Request {} finished", counter++);
+                break;
+            case ERROR:
+                OrsLogger.e(TAG, "Request {} finished", counter++);
+                break;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.logviewer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Streams the entries of a reader that match a filter as CSV, with fields quoted as described
+ * in RFC 4180. The matching positions are collected in one filter pass, so the search index is
+ * consulted once for the whole range, and then written out; entries evicted from the store
+ * while they are read are skipped.
+ */
+public final class CsvWriter {
+    public interface Progress {
+        void onProgress(long scanned, long total);
+    }
+
+    private static final String[] HEADER = {"Timestamp", "Type", "Tag", "File", "Line", "Repeats",
+            "Last Timestamp", "Message"};
+    private static final int CHUNK_SIZE = 8192;
+
+    private CsvWriter() {
+    }
+
+    /**
+     * Writes the header and every matching entry retained when the call starts. Progress is
+     * reported in matches written after each chunk of them. Returns the number of rows
+     * written, or -1 if cancelled.
+     */
+    public static long write(LogReader reader, LogFilter filter, Writer writer, BooleanSupplier cancelled,
+                             Progress progress) throws IOException {
+        PositionList matches = new PositionList();
+        if (!filter.filterRange(reader, reader.getStartPosition(), reader.getEndPosition(), matches, cancelled)) {
+            return -1;
+        }
+        long rows = 0;
+        writeRow(writer, HEADER);
+
+        TimestampFormatter timestampFormatter = new TimestampFormatter();
+        String[] fields = new String[HEADER.length];
+        for (int i = 0; i < matches.size(); i++) {
+            if (i % CHUNK_SIZE == 0) {
+                if (cancelled.getAsBoolean()) {
+                    return -1;
+                }
+                if (i > 0) {
+                    progress.onProgress(i, matches.size());
+                }
+            }
+            long position = matches.get(i);
+            fields[0] = timestampFormatter.format(reader.getTimestamp(position));
+            fields[1] = reader.getType(position).name();
+            fields[2] = reader.getTag(position);
+            fields[3] = reader.getFileName(position);
+            fields[4] = Integer.toString(reader.getLineNumber(position));
+            int repeatCount = reader.getRepeatCount(position);
+            fields[5] = Integer.toString(repeatCount);
+            fields[6] = repeatCount > 1 ? timestampFormatter.format(reader.getLastTimestamp(position)) : null;
+            fields[7] = reader.getMessage(position);
+            // The slot may have been reused while it was read
+            if (reader.contains(position)) {
+                writeRow(writer, fields);
+                rows++;
+            }
+        }
+        progress.onProgress(matches.size(), matches.size());
+        return rows;
+    }
+
+    public static void writeRow(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, fields[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Quotes the field if it contains a comma, quote or line break, doubling embedded quotes.
+     */
+    public static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                writer.write(value, runStart, i + 1 - runStart);
+                writer.write('"');
+                runStart = i + 1;
+            }
+        }
+        writer.write(value, runStart, value.length() - runStart);
+        writer.write('"');
+    }
+}
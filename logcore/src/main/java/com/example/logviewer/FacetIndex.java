@@ -0,0 +1,217 @@
+package com.example.logviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-level and per-tag bitmaps of entry positions, so level and tag filters are answered by
+ * OR-ing and AND-ing bitmaps instead of reading every entry.
+ *
+ * Positions are split into chunks of 2^16. Within a chunk a facet with few entries keeps them
+ * as a sorted char array and switches to a plain 8 KB bitmap once that gets larger, so a rare
+ * tag costs two bytes per entry and a common level at most one bit per position. Whole chunks
+ * are dropped once the store has evicted past them; positions below the store's start within
+ * the first chunk are masked off by the range every query passes.
+ *
+ * Writes come from the store's writer; queries may come from any thread.
+ */
+public class FacetIndex {
+    private static final int CHUNK_BITS = 16;
+    private static final int WORDS_PER_CHUNK = (1 << CHUNK_BITS) / 64;
+
+    private final Bitmap[] levels = new Bitmap[LogType.values().length];
+    // Indexed by tag id
+    private final List<Bitmap> tags = new ArrayList<>();
+    private long firstChunk;
+
+    public FacetIndex() {
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Bitmap();
+        }
+    }
+
+    public synchronized void add(long position, int level, int tagId) {
+        levels[level].add(position);
+        while (tags.size() <= tagId) {
+            tags.add(new Bitmap());
+        }
+        tags.get(tagId).add(position);
+    }
+
+    /**
+     * Drops the chunks that lie entirely below the store's start position.
+     */
+    public synchronized void onEvicted(long startPosition) {
+        long chunk = startPosition >>> CHUNK_BITS;
+        if (chunk <= firstChunk) {
+            return;
+        }
+        for (Bitmap bitmap : levels) {
+            bitmap.trimBelow(chunk);
+        }
+        for (Bitmap bitmap : tags) {
+            bitmap.trimBelow(chunk);
+        }
+        firstChunk = chunk;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Bitmap();
+        }
+        tags.clear();
+    }
+
+    /**
+     * Appends the positions in [from, to) whose level is accepted (indexed by LogType ordinal)
+     * and, unless acceptedTags is null, whose tag id is accepted.
+     */
+    public synchronized void select(boolean[] acceptedLevels, boolean[] acceptedTags, long from, long to,
+                                    PositionList result) {
+        long[] words = new long[WORDS_PER_CHUNK];
+        long[] tagWords = acceptedTags != null ? new long[WORDS_PER_CHUNK] : null;
+        for (long chunk = from >>> CHUNK_BITS; from < to && chunk <= (to - 1) >>> CHUNK_BITS; chunk++) {
+            Arrays.fill(words, 0);
+            for (int level = 0; level < levels.length; level++) {
+                if (acceptedLevels[level]) {
+                    levels[level].orInto(chunk, words);
+                }
+            }
+            if (tagWords != null) {
+                collectTags(acceptedTags, chunk, tagWords);
+                for (int i = 0; i < WORDS_PER_CHUNK; i++) {
+                    words[i] &= tagWords[i];
+                }
+            }
+            maskRange(words, chunk, from, to);
+
+            long base = chunk << CHUNK_BITS;
+            for (int i = 0; i < WORDS_PER_CHUNK; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    result.add(base + i * 64L + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    private void collectTags(boolean[] acceptedTags, long chunk, long[] tagWords) {
+        Arrays.fill(tagWords, 0);
+        int tagCount = Math.min(acceptedTags.length, tags.size());
+        for (int tag = 0; tag < tagCount; tag++) {
+            if (acceptedTags[tag]) {
+                tags.get(tag).orInto(chunk, tagWords);
+            }
+        }
+    }
+
+    // Clears the bits of the chunk that lie outside [from, to)
+    private static void maskRange(long[] words, long chunk, long from, long to) {
+        long base = chunk << CHUNK_BITS;
+        if (from > base) {
+            int bit = (int) (from - base);
+            Arrays.fill(words, 0, bit >>> 6, 0);
+            words[bit >>> 6] &= -1L << bit;
+        }
+        long end = base + (1L << CHUNK_BITS);
+        if (to < end) {
+            int bit = (int) (to - base);
+            if ((bit & 63) != 0) {
+                words[bit >>> 6] &= (1L << bit) - 1;
+                Arrays.fill(words, (bit >>> 6) + 1, WORDS_PER_CHUNK, 0);
+            } else {
+                Arrays.fill(words, bit >>> 6, WORDS_PER_CHUNK, 0);
+            }
+        }
+    }
+
+    /**
+     * One facet's positions, one container per chunk from firstChunk on (null where it has none).
+     */
+    private static final class Bitmap {
+        private final List<Container> chunks = new ArrayList<>();
+        private long firstChunk = -1;
+
+        void add(long position) {
+            long chunk = position >>> CHUNK_BITS;
+            if (firstChunk < 0) {
+                firstChunk = chunk;
+            }
+            int index = (int) (chunk - firstChunk);
+            while (chunks.size() <= index) {
+                chunks.add(null);
+            }
+            Container container = chunks.get(index);
+            if (container == null) {
+                container = new Container();
+                chunks.set(index, container);
+            }
+            container.add((int) position & ((1 << CHUNK_BITS) - 1));
+        }
+
+        void orInto(long chunk, long[] words) {
+            long index = chunk - firstChunk;
+            if (firstChunk >= 0 && index >= 0 && index < chunks.size()) {
+                Container container = chunks.get((int) index);
+                if (container != null) {
+                    container.orInto(words);
+                }
+            }
+        }
+
+        void trimBelow(long chunk) {
+            if (firstChunk < 0 || chunk <= firstChunk) {
+                return;
+            }
+            int drop = (int) Math.min(chunk - firstChunk, chunks.size());
+            chunks.subList(0, drop).clear();
+            firstChunk = chunk;
+        }
+    }
+
+    /**
+     * The offsets within one chunk: a sorted array while sparse, a bitmap once dense. Offsets
+     * only ever arrive in ascending order.
+     */
+    private static final class Container {
+        private static final int ARRAY_LIMIT = 4096;
+
+        private char[] values = new char[4];
+        private int size;
+        private long[] words;
+
+        void add(int offset) {
+            if (words != null) {
+                words[offset >>> 6] |= 1L << offset;
+                return;
+            }
+            if (size == values.length) {
+                if (size == ARRAY_LIMIT) {
+                    long[] bitmap = new long[WORDS_PER_CHUNK];
+                    orInto(bitmap);
+                    bitmap[offset >>> 6] |= 1L << offset;
+                    words = bitmap;
+                    values = null;
+                    return;
+                }
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = (char) offset;
+        }
+
+        void orInto(long[] target) {
+            if (words != null) {
+                for (int i = 0; i < WORDS_PER_CHUNK; i++) {
+                    target[i] |= words[i];
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    char offset = values[i];
+                    target[offset >>> 6] |= 1L << offset;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.logviewer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of nanosecond latencies in power-of-two buckets. Percentiles are
+ * reported as the upper bound of the bucket they fall in, so they are accurate to within 2x,
+ * which is enough to size budgets and spot regressions.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    public void record(long nanos, long count) {
+        if (nanos < 0) {
+            return;
+        }
+        counts.addAndGet(bucket(nanos), count);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Latency below which the given fraction (0..1) of the recorded values fall; 0 if empty.
+     */
+    public long percentile(double fraction) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    // Bucket b holds values in [2^(b-1), 2^b - 1]; bucket 0 holds 0
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
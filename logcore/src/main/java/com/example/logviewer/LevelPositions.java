@@ -0,0 +1,54 @@
+package com.example.logviewer;
+
+/**
+ * The positions of a filtered view split by level, so the view's per-level counts are the list
+ * sizes. Evicted entries are dropped from the front of each list without reading their slots,
+ * which by then may hold newer entries.
+ */
+public class LevelPositions {
+    private final PositionList[] levels = new PositionList[LogType.values().length];
+
+    public LevelPositions() {
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new PositionList();
+        }
+    }
+
+    /**
+     * Adds the positions from index from of the list on, which must all be greater than those
+     * already added. Entries evicted while their level is read are left out.
+     */
+    public void addAll(LogReader reader, PositionList positions, int from) {
+        for (int i = Math.max(from, 0); i < positions.size(); i++) {
+            long position = positions.get(i);
+            LogType type = reader.getType(position);
+            if (reader.contains(position)) {
+                levels[type.ordinal()].add(position);
+            }
+        }
+    }
+
+    /**
+     * Drops the positions below the given one.
+     */
+    public void removeBefore(long position) {
+        for (PositionList list : levels) {
+            list.removeFirst(list.lowerBound(position));
+        }
+    }
+
+    public void clear() {
+        for (PositionList list : levels) {
+            list.clear();
+        }
+    }
+
+    /**
+     * Sets counts (indexed by LogType ordinal) to the number of positions per level.
+     */
+    public void getCounts(long[] counts) {
+        for (int i = 0; i < levels.length; i++) {
+            counts[i] = levels[i].size();
+        }
+    }
+}
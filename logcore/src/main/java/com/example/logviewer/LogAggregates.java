@@ -0,0 +1,146 @@
+package com.example.logviewer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-level counters kept up to date as the store ingests and evicts entries, so counts and
+ * charts cost O(levels) or O(buckets) instead of a walk over every entry.
+ *
+ * There are two bucketed views: exact per-minute counts for the whole retained window (for the
+ * date/time filter) and a ring of the last {@link #SECOND_BUCKETS} seconds (for the
+ * logs-per-second chart of an unfiltered view).
+ */
+public class LogAggregates {
+    public static final int SECOND_BUCKETS = 300;
+    private static final int LEVELS = LogType.values().length;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private final TreeMap<Long, int[]> minuteBuckets = new TreeMap<>();
+    private final long[] secondKeys = new long[SECOND_BUCKETS];
+    private final int[][] secondCounts = new int[SECOND_BUCKETS][LEVELS];
+    // Most logs land in the current minute; caching it avoids a boxed TreeMap lookup per entry
+    private long lastMinute = Long.MIN_VALUE;
+    private int[] lastMinuteCounts;
+
+    public LogAggregates() {
+        Arrays.fill(secondKeys, Long.MIN_VALUE);
+    }
+
+    /**
+     * Counts count logs of the level at the timestamp; more than one for a coalesced entry.
+     */
+    public synchronized void onAdded(int level, long timestamp, int count) {
+        minuteCounts(Math.floorDiv(timestamp, MILLIS_PER_MINUTE), true)[level] += count;
+
+        long second = Math.floorDiv(timestamp, 1000L);
+        int slot = (int) Math.floorMod(second, (long) SECOND_BUCKETS);
+        if (secondKeys[slot] != second) {
+            if (secondKeys[slot] > second) {
+                // Older than anything the ring still covers
+                return;
+            }
+            secondKeys[slot] = second;
+            Arrays.fill(secondCounts[slot], 0);
+        }
+        secondCounts[slot][level] += count;
+    }
+
+    /**
+     * Takes back what {@link #onAdded} counted for the same level, timestamp and count.
+     */
+    public synchronized void onRemoved(int level, long timestamp, int count) {
+        long minute = Math.floorDiv(timestamp, MILLIS_PER_MINUTE);
+        int[] counts = minuteCounts(minute, false);
+        if (counts != null && (counts[level] -= count) <= 0 && isEmpty(counts)) {
+            minuteBuckets.remove(minute);
+            if (minute == lastMinute) {
+                lastMinute = Long.MIN_VALUE;
+                lastMinuteCounts = null;
+            }
+        }
+
+        long second = Math.floorDiv(timestamp, 1000L);
+        int slot = (int) Math.floorMod(second, (long) SECOND_BUCKETS);
+        if (secondKeys[slot] == second) {
+            secondCounts[slot][level] = Math.max(0, secondCounts[slot][level] - count);
+        }
+    }
+
+    public synchronized void clear() {
+        minuteBuckets.clear();
+        lastMinute = Long.MIN_VALUE;
+        lastMinuteCounts = null;
+        Arrays.fill(secondKeys, Long.MIN_VALUE);
+        for (int[] counts : secondCounts) {
+            Arrays.fill(counts, 0);
+        }
+    }
+
+    /**
+     * Per-level counts of entries with a timestamp at or after minTimestamp. Exact when
+     * minTimestamp falls on a minute boundary, otherwise the partial minute is left out.
+     */
+    public synchronized void getCountsSince(long minTimestamp, long[] out) {
+        Arrays.fill(out, 0, LEVELS, 0);
+        long firstMinute = Math.floorDiv(minTimestamp + MILLIS_PER_MINUTE - 1, MILLIS_PER_MINUTE);
+        for (Map.Entry<Long, int[]> bucket : minuteBuckets.tailMap(firstMinute, true).entrySet()) {
+            int[] counts = bucket.getValue();
+            for (int level = 0; level < LEVELS; level++) {
+                out[level] += counts[level];
+            }
+        }
+    }
+
+    /**
+     * Whether a retained entry may have a timestamp before the given one. Exact on a minute
+     * boundary; otherwise entries in the same minute count as before it.
+     */
+    public synchronized boolean hasEntriesBefore(long timestamp) {
+        long minute = Math.floorDiv(timestamp + MILLIS_PER_MINUTE - 1, MILLIS_PER_MINUTE);
+        return !minuteBuckets.headMap(minute, false).isEmpty();
+    }
+
+    /**
+     * Fills out[level][i] with the number of logs of that level in second
+     * (endSecond - seconds + 1 + i), for up to the last {@link #SECOND_BUCKETS} seconds.
+     */
+    public synchronized void getPerSecondCounts(long endSecond, int seconds, int[][] out) {
+        seconds = Math.min(seconds, SECOND_BUCKETS);
+        for (int i = 0; i < seconds; i++) {
+            long second = endSecond - seconds + 1 + i;
+            int slot = (int) Math.floorMod(second, (long) SECOND_BUCKETS);
+            boolean present = secondKeys[slot] == second;
+            for (int level = 0; level < LEVELS; level++) {
+                out[level][i] = present ? secondCounts[slot][level] : 0;
+            }
+        }
+    }
+
+    private int[] minuteCounts(long minute, boolean create) {
+        if (minute == lastMinute) {
+            return lastMinuteCounts;
+        }
+        int[] counts = minuteBuckets.get(minute);
+        if (counts == null) {
+            if (!create) {
+                return null;
+            }
+            counts = new int[LEVELS];
+            minuteBuckets.put(minute, counts);
+        }
+        lastMinute = minute;
+        lastMinuteCounts = counts;
+        return counts;
+    }
+
+    private static boolean isEmpty(int[] counts) {
+        for (int count : counts) {
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.logviewer;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of the viewer's filter settings. Cheap column checks (level, time, source)
+ * run before the {@link LogQuery}, which orders its own terms the same way.
+ */
+public class LogFilter {
+    // Below this many entries a plain scan is cheaper than intersecting posting lists
+    private static final int MIN_INDEXED_RANGE = 4096;
+    // How many entries are scanned between cancellation checks
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    private final boolean[] activeTypes = new boolean[LogType.values().length];
+    private final long minTimestamp;
+    private final LogQuery query;
+    private final String source;
+    // What the checkboxes and the query's level and tag terms let through, for facet bitmaps
+    private final boolean[] acceptedLevels;
+    private final Predicate<String> tagFilter;
+    private final boolean narrowsFacets;
+    // Whether the facets alone decide a match, given that the time bound excludes nothing
+    private final boolean facetsExact;
+
+    /**
+     * A filter whose query is a plain substring of the message.
+     */
+    public LogFilter(Set<LogType> activeTypes, long minTimestamp, String query) {
+        this(activeTypes, minTimestamp, LogQuery.substring(query), null);
+    }
+
+    /**
+     * @param source only entries from this source match; null for entries from any source
+     */
+    public LogFilter(Set<LogType> activeTypes, long minTimestamp, LogQuery query, String source) {
+        for (LogType type : activeTypes) {
+            this.activeTypes[type.ordinal()] = true;
+        }
+        this.minTimestamp = minTimestamp;
+        this.query = query == null ? LogQuery.EMPTY : query;
+        this.source = source;
+
+        this.acceptedLevels = this.query.getAcceptedLevels();
+        boolean narrows = false;
+        for (int i = 0; i < acceptedLevels.length; i++) {
+            acceptedLevels[i] &= this.activeTypes[i];
+            narrows |= !acceptedLevels[i];
+        }
+        this.tagFilter = this.query.hasTagTerms() ? this.query::acceptsTag : null;
+        this.narrowsFacets = narrows || tagFilter != null;
+        this.facetsExact = source == null && this.query.isFacetOnly();
+    }
+
+    public boolean isActive(LogType type) {
+        return activeTypes[type.ordinal()];
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public boolean hasQuery() {
+        return !query.isEmpty();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Whether the filter tests more than level and time, so the view's per-level counts can't
+     * be taken from {@link LogAggregates}.
+     */
+    public boolean hasEntryConditions() {
+        return !query.isEmpty() || source != null;
+    }
+
+    public boolean matches(LogReader reader, long position) {
+        return activeTypes[reader.getType(position).ordinal()]
+                && reader.getTimestamp(position) >= minTimestamp
+                && (source == null || source.equals(reader.getSource(position)))
+                && query.matches(reader, position);
+    }
+
+    /**
+     * Appends the matching positions in [from, to) to the result.
+     */
+    public void filterRange(LogReader reader, long from, long to, PositionList result) {
+        filterRange(reader, from, to, result, NEVER_CANCELLED);
+    }
+
+    /**
+     * Like {@link #filterRange(LogReader, long, long, PositionList)}, but polls cancelled
+     * periodically and gives up when it returns true.
+     *
+     * @return false if the pass was cancelled and the result is incomplete
+     */
+    public boolean filterRange(LogReader reader, long from, long to, PositionList result,
+                               BooleanSupplier cancelled) {
+        from = Math.max(from, reader.getStartPosition());
+        if (to - from >= MIN_INDEXED_RANGE) {
+            PositionList candidates = null;
+            boolean exact = facetsExact && !reader.getAggregates().hasEntriesBefore(minTimestamp);
+            if (exact || narrowsFacets) {
+                PositionList selected = reader.facetPositions(acceptedLevels, tagFilter, from, to);
+                if (selected != null && exact) {
+                    result.addAll(selected);
+                    return true;
+                }
+                candidates = selected;
+            }
+            // Every candidate list covers all matches, so walk the shortest one
+            String indexedText = query.getIndexedText();
+            if (indexedText != null) {
+                candidates = shorter(candidates, reader.searchCandidates(indexedText, from, to));
+            }
+            if (source != null) {
+                candidates = shorter(candidates, reader.sourcePositions(source, from, to));
+            }
+            if (candidates != null) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                        return false;
+                    }
+                    long position = candidates.get(i);
+                    if (matches(reader, position)) {
+                        result.add(position);
+                    }
+                }
+                return true;
+            }
+        }
+
+        for (long position = from; position < to; position++) {
+            if ((position - from) % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return false;
+            }
+            if (matches(reader, position)) {
+                result.add(position);
+            }
+        }
+        return true;
+    }
+
+    private static PositionList shorter(PositionList a, PositionList b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.size() < a.size() ? b : a;
+    }
+}
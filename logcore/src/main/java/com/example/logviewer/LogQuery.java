@@ -0,0 +1,490 @@
+package com.example.logviewer;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A search box query compiled into a list of terms that must all match. The terms are
+ * ordered by cost, so the level, time and tag columns rule an entry out before its message
+ * text is looked at.
+ *
+ * <pre>
+ *   timeout  "read timeout"     message contains the text, ignoring case
+ *   msg~/timeout \d+ms/        message matches the regular expression
+ *   level:ERROR  level>=WARNING level compared by severity (also =, >, <, <=)
+ *   tag:Net*  file:Repo.java   tag or file name matches the glob (* and ?), ignoring case
+ *   after:10:32  before:10:35  logged at or after / before the time; a time of day means today,
+ *                              a date is yyyy-MM-dd, optionally followed by T and a time
+ *   -tag:Net*                  any term prefixed with - excludes what it matches
+ * </pre>
+ *
+ * Immutable and safe to evaluate from several threads.
+ */
+public final class LogQuery {
+    public static final LogQuery EMPTY = new LogQuery(new Term[0]);
+
+    private static final int COST_LEVEL = 0;
+    private static final int COST_TIME = 1;
+    private static final int COST_DICTIONARY = 2;
+    private static final int COST_SUBSTRING = 3;
+    private static final int COST_REGEX = 4;
+    private static final String[] TIME_FORMATS = {"HH:mm", "HH:mm:ss", "HH:mm:ss.SSS"};
+    private static final String[] DATE_TIME_FORMATS = {"yyyy-MM-dd", "yyyy-MM-dd'T'HH:mm",
+            "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss.SSS"};
+
+    private final Term[] terms;
+    // Longest text a matching message must contain, for the search index; null if there is none
+    private final String indexedText;
+
+    private LogQuery(Term[] terms) {
+        Arrays.sort(terms, Comparator.comparingInt(term -> term.cost));
+        this.terms = terms;
+        String longest = null;
+        for (Term term : terms) {
+            if (term instanceof Substring && !term.negated) {
+                String text = ((Substring) term).foldedText;
+                if (longest == null || text.length() > longest.length()) {
+                    longest = text;
+                }
+            }
+        }
+        this.indexedText = longest;
+    }
+
+    /**
+     * A query that only looks for the text in messages, without interpreting any syntax.
+     */
+    public static LogQuery substring(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        return new LogQuery(new Term[]{new Substring(text)});
+    }
+
+    /**
+     * Compiles the query; the error offset of the exception points at the offending term.
+     */
+    public static LogQuery parse(String text) throws ParseException {
+        if (text == null) {
+            return EMPTY;
+        }
+        List<Term> terms = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean negated = text.charAt(i) == '-' && i + 1 < length && !Character.isWhitespace(text.charAt(i + 1));
+            if (negated) {
+                i++;
+            }
+
+            int keyEnd = i;
+            while (keyEnd < length && Character.isLetter(text.charAt(keyEnd))) {
+                keyEnd++;
+            }
+            String key = text.substring(i, keyEnd).toLowerCase(Locale.ROOT);
+            String operator = operatorAt(text, keyEnd);
+            Term term;
+            if (operator != null && isKey(key)) {
+                int valueStart = keyEnd + operator.length();
+                int valueEnd;
+                String value;
+                if (operator.equals("~")) {
+                    if (valueStart >= length || text.charAt(valueStart) != '/') {
+                        throw new ParseException("Expected /regex/ after " + key + "~", valueStart);
+                    }
+                    valueEnd = closingSlash(text, valueStart + 1);
+                    if (valueEnd < 0) {
+                        throw new ParseException("Unterminated regex", valueStart);
+                    }
+                    value = text.substring(valueStart + 1, valueEnd);
+                    valueEnd++;
+                } else if (valueStart < length && text.charAt(valueStart) == '"') {
+                    valueEnd = text.indexOf('"', valueStart + 1);
+                    if (valueEnd < 0) {
+                        throw new ParseException("Unterminated quote", valueStart);
+                    }
+                    value = text.substring(valueStart + 1, valueEnd);
+                    valueEnd++;
+                } else {
+                    valueEnd = wordEnd(text, valueStart);
+                    value = text.substring(valueStart, valueEnd);
+                }
+                if (value.isEmpty()) {
+                    throw new ParseException("Missing value for " + key, valueStart);
+                }
+                term = compile(key, operator, value, start);
+                i = valueEnd;
+            } else if (text.charAt(i) == '"') {
+                int close = text.indexOf('"', i + 1);
+                if (close < 0) {
+                    throw new ParseException("Unterminated quote", i);
+                }
+                term = close > i + 1 ? new Substring(text.substring(i + 1, close)) : null;
+                i = close + 1;
+            } else {
+                int end = wordEnd(text, i);
+                term = new Substring(text.substring(i, end));
+                i = end;
+            }
+            if (term != null) {
+                term.negated = negated;
+                terms.add(term);
+            }
+        }
+        return terms.isEmpty() ? EMPTY : new LogQuery(terms.toArray(new Term[0]));
+    }
+
+    public boolean isEmpty() {
+        return terms.length == 0;
+    }
+
+    public boolean matches(LogReader reader, long position) {
+        for (Term term : terms) {
+            if (term.matches(reader, position) == term.negated) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Levels (indexed by LogType ordinal) the level terms let through.
+     */
+    boolean[] getAcceptedLevels() {
+        boolean[] accepted = new boolean[LogType.values().length];
+        Arrays.fill(accepted, true);
+        for (Term term : terms) {
+            if (term instanceof Level) {
+                boolean[] levels = ((Level) term).accepted;
+                for (int i = 0; i < accepted.length; i++) {
+                    accepted[i] &= levels[i] != term.negated;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    boolean hasTagTerms() {
+        for (Term term : terms) {
+            if (term instanceof Glob && ((Glob) term).tag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the tag passes every tag term.
+     */
+    boolean acceptsTag(String tag) {
+        for (Term term : terms) {
+            if (term instanceof Glob && ((Glob) term).tag && ((Glob) term).matches(tag) == term.negated) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the query only has level and tag terms, which facet bitmaps answer exactly.
+     */
+    boolean isFacetOnly() {
+        for (Term term : terms) {
+            if (!(term instanceof Level) && !(term instanceof Glob && ((Glob) term).tag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case-folded text every matching message contains, to narrow the search with
+     * {@link LogReader#searchCandidates}; null if the query has no such term.
+     */
+    String getIndexedText() {
+        return indexedText;
+    }
+
+    private static boolean isKey(String key) {
+        switch (key) {
+            case "level":
+            case "tag":
+            case "file":
+            case "msg":
+            case "after":
+            case "before":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String operatorAt(String text, int index) {
+        if (index >= text.length()) {
+            return null;
+        }
+        char c = text.charAt(index);
+        if ((c == '>' || c == '<') && index + 1 < text.length() && text.charAt(index + 1) == '=') {
+            return c + "=";
+        }
+        return c == ':' || c == '=' || c == '>' || c == '<' || c == '~' ? String.valueOf(c) : null;
+    }
+
+    private static Term compile(String key, String operator, String value, int offset) throws ParseException {
+        switch (key) {
+            case "level":
+                return level(operator, value, offset);
+            case "tag":
+            case "file":
+                if (!operator.equals(":") && !operator.equals("=")) {
+                    throw new ParseException(key + " takes a glob, as in " + key + ":" + value, offset);
+                }
+                return new Glob(key.equals("tag"), value);
+            case "msg":
+                if (operator.equals("~")) {
+                    try {
+                        return new Regex(Pattern.compile(value));
+                    } catch (PatternSyntaxException e) {
+                        throw new ParseException("Invalid regex: " + e.getDescription(), offset);
+                    }
+                }
+                if (!operator.equals(":")) {
+                    throw new ParseException("msg takes :text or ~/regex/", offset);
+                }
+                return new Substring(value);
+            default:
+                if (!operator.equals(":")) {
+                    throw new ParseException(key + " takes a time, as in " + key + ":10:30", offset);
+                }
+                long timestamp = parseTime(value, offset);
+                return key.equals("after") ? new TimeRange(timestamp, Long.MAX_VALUE) : new TimeRange(Long.MIN_VALUE, timestamp);
+        }
+    }
+
+    private static Term level(String operator, String value, int offset) throws ParseException {
+        LogType level;
+        try {
+            level = LogType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Unknown level " + value, offset);
+        }
+        boolean[] accepted = new boolean[LogType.values().length];
+        for (LogType type : LogType.values()) {
+            int compared = Integer.compare(type.getSeverity(), level.getSeverity());
+            switch (operator) {
+                case ">=":
+                    accepted[type.ordinal()] = compared >= 0;
+                    break;
+                case ">":
+                    accepted[type.ordinal()] = compared > 0;
+                    break;
+                case "<=":
+                    accepted[type.ordinal()] = compared <= 0;
+                    break;
+                case "<":
+                    accepted[type.ordinal()] = compared < 0;
+                    break;
+                case "~":
+                    throw new ParseException("level takes a comparison, as in level>=" + value, offset);
+                default:
+                    accepted[type.ordinal()] = compared == 0;
+                    break;
+            }
+        }
+        return new Level(accepted);
+    }
+
+    private static long parseTime(String value, int offset) throws ParseException {
+        for (String format : TIME_FORMATS) {
+            Date time = parseExactly(format, value);
+            if (time != null) {
+                Calendar parsed = Calendar.getInstance();
+                parsed.setTime(time);
+                Calendar today = Calendar.getInstance();
+                today.set(Calendar.HOUR_OF_DAY, parsed.get(Calendar.HOUR_OF_DAY));
+                today.set(Calendar.MINUTE, parsed.get(Calendar.MINUTE));
+                today.set(Calendar.SECOND, parsed.get(Calendar.SECOND));
+                today.set(Calendar.MILLISECOND, parsed.get(Calendar.MILLISECOND));
+                return today.getTimeInMillis();
+            }
+        }
+        for (String format : DATE_TIME_FORMATS) {
+            Date time = parseExactly(format, value);
+            if (time != null) {
+                return time.getTime();
+            }
+        }
+        throw new ParseException("Unrecognized time " + value + ", expected HH:mm[:ss] or yyyy-MM-dd[THH:mm]", offset);
+    }
+
+    private static Date parseExactly(String format, String value) {
+        SimpleDateFormat parser = new SimpleDateFormat(format, Locale.ROOT);
+        parser.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        Date date = parser.parse(value, position);
+        return date != null && position.getIndex() == value.length() ? date : null;
+    }
+
+    private static int wordEnd(String text, int index) {
+        while (index < text.length() && !Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    // A slash inside the regex is written \/
+    private static int closingSlash(String text, int index) {
+        for (int i = index; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private abstract static class Term {
+        final int cost;
+        boolean negated;
+
+        Term(int cost) {
+            this.cost = cost;
+        }
+
+        abstract boolean matches(LogReader reader, long position);
+    }
+
+    private static final class Level extends Term {
+        // Indexed by LogType ordinal
+        final boolean[] accepted;
+
+        Level(boolean[] accepted) {
+            super(COST_LEVEL);
+            this.accepted = accepted;
+        }
+
+        @Override
+        boolean matches(LogReader reader, long position) {
+            return accepted[reader.getType(position).ordinal()];
+        }
+    }
+
+    private static final class TimeRange extends Term {
+        private final long from;
+        private final long to;
+
+        // [from, to)
+        TimeRange(long from, long to) {
+            super(COST_TIME);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        boolean matches(LogReader reader, long position) {
+            long timestamp = reader.getTimestamp(position);
+            return timestamp >= from && timestamp < to;
+        }
+    }
+
+    /**
+     * Tag or file name glob. Both columns come from small dictionaries, so the result is cached
+     * per distinct value and the pattern runs once per tag rather than once per entry.
+     */
+    private static final class Glob extends Term {
+        private static final int MAX_CACHED = 4096;
+
+        final boolean tag;
+        private final Pattern pattern;
+        private final Map<String, Boolean> cache = new ConcurrentHashMap<>();
+
+        Glob(boolean tag, String glob) {
+            super(COST_DICTIONARY);
+            this.tag = tag;
+            StringBuilder regex = new StringBuilder();
+            int literalStart = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+            if (literalStart < glob.length()) {
+                regex.append(Pattern.quote(glob.substring(literalStart)));
+            }
+            this.pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        }
+
+        @Override
+        boolean matches(LogReader reader, long position) {
+            return matches(tag ? reader.getTag(position) : reader.getFileName(position));
+        }
+
+        boolean matches(String value) {
+            if (value == null) {
+                return false;
+            }
+            Boolean cached = cache.get(value);
+            if (cached != null) {
+                return cached;
+            }
+            boolean matched = pattern.matcher(value).matches();
+            if (cache.size() < MAX_CACHED) {
+                cache.put(value, matched);
+            }
+            return matched;
+        }
+    }
+
+    private static final class Substring extends Term {
+        final String foldedText;
+
+        Substring(String text) {
+            super(COST_SUBSTRING);
+            this.foldedText = TrigramIndex.fold(text);
+        }
+
+        @Override
+        boolean matches(LogReader reader, long position) {
+            return reader.messageContains(position, foldedText);
+        }
+    }
+
+    private static final class Regex extends Term {
+        private final Pattern pattern;
+
+        Regex(Pattern pattern) {
+            super(COST_REGEX);
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(LogReader reader, long position) {
+            String message = reader.getMessage(position);
+            return message != null && pattern.matcher(message).find();
+        }
+    }
+}
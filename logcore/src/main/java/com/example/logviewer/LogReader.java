@@ -0,0 +1,100 @@
+package com.example.logviewer;
+
+import java.util.function.Predicate;
+
+/**
+ * Read access to a window of log entries addressed by position. Positions are assigned in
+ * arrival order and never reused; [getStartPosition(), getEndPosition()) are readable.
+ */
+public interface LogReader {
+    long getStartPosition();
+
+    long getEndPosition();
+
+    int size();
+
+    boolean contains(long position);
+
+    LogType getType(long position);
+
+    long getTimestamp(long position);
+
+    long getNanos(long position);
+
+    String getTag(long position);
+
+    /**
+     * Message of the entry. On a live store the entry can be evicted while its text is copied;
+     * the copy is then discarded and null returned, so a non-null result always belongs to the
+     * position asked for.
+     */
+    String getMessage(long position);
+
+    /**
+     * Source file the entry was logged from, or null if the sender did not capture it.
+     */
+    String getFileName(long position);
+
+    int getLineNumber(long position);
+
+    /**
+     * Id of the process that sent the entry, or null for entries from senders without one.
+     */
+    String getSource(long position);
+
+    /**
+     * Per-source sequence number assigned by the sender, starting at 1; 0 if there is none.
+     */
+    long getSequence(long position);
+
+    /**
+     * Number of identical consecutive logs folded into the entry; 1 if it was not coalesced.
+     */
+    int getRepeatCount(long position);
+
+    /**
+     * Timestamp of the last log folded into the entry; the entry's own timestamp if there is none.
+     */
+    long getLastTimestamp(long position);
+
+    /**
+     * Fingerprint of the stack trace logged with the entry, or 0 if it has none.
+     */
+    long getTraceFingerprint(long position);
+
+    /**
+     * Full stack trace for a fingerprint, or null if it is not known.
+     */
+    String getTrace(long fingerprint);
+
+    /**
+     * Whether the message contains the query, which must already be case-folded with
+     * {@link TrigramIndex#fold(String)}. Does not allocate. False if the entry was evicted
+     * while it was read, as with {@link #getMessage}.
+     */
+    boolean messageContains(long position, String foldedQuery);
+
+    /**
+     * Ascending positions in [from, to) that may contain the folded query, to be verified with
+     * {@link #messageContains}; null if no index can narrow the search.
+     */
+    PositionList searchCandidates(String foldedQuery, long from, long to);
+
+    /**
+     * Ascending positions in [from, to) of the entries from the source; null if no index can
+     * narrow the search.
+     */
+    PositionList sourcePositions(String source, long from, long to);
+
+    /**
+     * Ascending positions in [from, to) whose level is accepted (indexed by LogType ordinal) and
+     * whose tag passes tagFilter (any tag if it is null), read from facet bitmaps; null if the
+     * reader has none.
+     */
+    PositionList facetPositions(boolean[] acceptedLevels, Predicate<String> tagFilter, long from, long to);
+
+    /**
+     * Running per-level and per-time-bucket counts over the retained window.
+     */
+    LogAggregates getAggregates();
+}
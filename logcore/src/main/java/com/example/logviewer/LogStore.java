@@ -0,0 +1,433 @@
+package com.example.logviewer;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Fixed-capacity ring of log entries kept in a struct-of-arrays layout: one primitive column
+ * per field, tags interned into a {@link StringDictionary}, and message text packed into a
+ * single char arena. The columns and the arena are allocated up front and dictionary ids are
+ * released as their entries are evicted, so heap use does not grow with the session; when
+ * either the entry or the message budget is exhausted the oldest entries are evicted first.
+ *
+ * Entries are addressed by position, a counter that starts at 0 and never repeats. Positions
+ * in [getStartPosition(), getEndPosition()) are retained.
+ *
+ * Single writer: appends, repeats and clear() must all come from one thread. Readers on other
+ * threads see an entry once the end position published after writing it covers it, and check
+ * {@link #contains} after reading to detect eviction racing with the read.
+ */
+public class LogStore implements LogReader {
+    private static final LogType[] TYPES = LogType.values();
+
+    private final int capacity;
+    private final int arenaCapacity;
+
+    private final long[] timestamps;
+    private final long[] nanos;
+    private final byte[] levels;
+    private final int[] tagIds;
+    private final int[] fileIds;
+    private final int[] lineNumbers;
+    private final int[] sourceIds;
+    private final long[] sequences;
+    private final int[] repeatCounts;
+    private final long[] lastTimestamps;
+    private final long[] traceFingerprints;
+    private final long[] messageOffsets;
+    private final int[] messageLengths;
+    private final char[] arena;
+    private final StringDictionary tags = new StringDictionary();
+    private final StringDictionary files = new StringDictionary();
+    private final StringDictionary sources = new StringDictionary();
+    // Survives clear(): senders do not send a trace again once they have sent it
+    private final TraceDictionary traces = new TraceDictionary();
+    private final TrigramIndex searchIndex;
+    private final SourceIndex sourceIndex;
+    private final FacetIndex facetIndex = new FacetIndex();
+    private final LogAggregates aggregates = new LogAggregates();
+
+    private volatile long startPosition;
+    private volatile long endPosition;
+    // Logical (ever-increasing) offsets into the arena; physical index is offset % arenaCapacity
+    private long arenaStart;
+    private long arenaEnd;
+
+    public LogStore(int maxEntries, long maxMessageBytes) {
+        if (maxEntries <= 0 || maxMessageBytes < 2) {
+            throw new IllegalArgumentException("LogStore budget must be positive");
+        }
+        this.capacity = maxEntries;
+        this.arenaCapacity = (int) Math.min(Integer.MAX_VALUE - 8, maxMessageBytes / 2);
+        this.timestamps = new long[capacity];
+        this.nanos = new long[capacity];
+        this.levels = new byte[capacity];
+        this.tagIds = new int[capacity];
+        this.fileIds = new int[capacity];
+        this.lineNumbers = new int[capacity];
+        this.sourceIds = new int[capacity];
+        this.sequences = new long[capacity];
+        this.repeatCounts = new int[capacity];
+        this.lastTimestamps = new long[capacity];
+        this.traceFingerprints = new long[capacity];
+        this.messageOffsets = new long[capacity];
+        this.messageLengths = new int[capacity];
+        this.arena = new char[arenaCapacity];
+        this.searchIndex = new TrigramIndex(Math.max(1, capacity / 4));
+        this.sourceIndex = new SourceIndex(Math.max(1, capacity / 4));
+    }
+
+    public long append(LogType type, String tag, String message, long timestamp, long nanoTime,
+                       String fileName, int lineNumber) {
+        return append(type, tag, message, timestamp, nanoTime, fileName, lineNumber, null, 0);
+    }
+
+    /**
+     * Appends an entry from the given source (null if unknown) carrying the sender's sequence
+     * number (0 if it has none).
+     */
+    public long append(LogType type, String tag, String message, long timestamp, long nanoTime,
+                       String fileName, int lineNumber, String source, long sequence) {
+        return append(type, tag, message, timestamp, nanoTime, fileName, lineNumber, source, sequence, 0);
+    }
+
+    /**
+     * Appends an entry referring to the stack trace with the given fingerprint in
+     * {@link #getTraces()}; 0 if it has none.
+     */
+    public long append(LogType type, String tag, String message, long timestamp, long nanoTime,
+                       String fileName, int lineNumber, String source, long sequence, long traceFingerprint) {
+        if (message == null) {
+            message = "";
+        }
+        int length = Math.min(message.length(), arenaCapacity);
+
+        long position = endPosition;
+        if (position - startPosition == capacity) {
+            evictOldest();
+        }
+        while (arenaEnd + length - arenaStart > arenaCapacity) {
+            evictOldest();
+        }
+
+        int index = index(position);
+        timestamps[index] = timestamp;
+        nanos[index] = nanoTime;
+        levels[index] = (byte) type.ordinal();
+        tagIds[index] = tags.intern(tag);
+        fileIds[index] = files.intern(fileName);
+        lineNumbers[index] = lineNumber;
+        sourceIds[index] = sources.intern(source);
+        sequences[index] = sequence;
+        repeatCounts[index] = 1;
+        lastTimestamps[index] = timestamp;
+        traceFingerprints[index] = traceFingerprint;
+        messageOffsets[index] = arenaEnd;
+        messageLengths[index] = length;
+        writeArena(arenaEnd, message, length);
+        arenaEnd += length;
+        searchIndex.add(position, message, length);
+        searchIndex.onEvicted(startPosition);
+        sourceIndex.add(position, source);
+        sourceIndex.onEvicted(startPosition);
+        facetIndex.add(position, type.ordinal(), tagIds[index]);
+        facetIndex.onEvicted(startPosition);
+        aggregates.onAdded(type.ordinal(), timestamp, 1);
+
+        // Publishing the new end makes the column writes above visible to readers
+        endPosition = position + 1;
+        return position;
+    }
+
+    /**
+     * Folds an entry into the newest one if it repeats it: same level, tag, message, call site,
+     * source and stack trace, the sequence number right after the newest entry's last one (or no sequence
+     * numbers on either), and a last timestamp at most windowMs after the newest entry's first.
+     * Returns false, changing nothing, if it does not.
+     */
+    public boolean coalesce(LogType type, String tag, String message, String fileName, int lineNumber,
+                            String source, long sequence, long traceFingerprint, int repeatCount,
+                            long lastTimestamp, long windowMs) {
+        long newest = endPosition - 1;
+        if (newest < startPosition) {
+            return false;
+        }
+        int index = index(newest);
+        boolean consecutive = sequences[index] == 0
+                ? sequence == 0
+                : sequence == sequences[index] + repeatCounts[index];
+        if (!consecutive
+                || levels[index] != type.ordinal()
+                || lastTimestamp - timestamps[index] > windowMs
+                || repeatCounts[index] > Integer.MAX_VALUE - repeatCount
+                || lineNumbers[index] != lineNumber
+                || traceFingerprints[index] != traceFingerprint
+                || !Objects.equals(tags.get(tagIds[index]), tag)
+                || !Objects.equals(files.get(fileIds[index]), fileName)
+                || !Objects.equals(sources.get(sourceIds[index]), source)
+                || !messageEquals(index, message != null ? message : "")) {
+            return false;
+        }
+        addRepeats(newest, repeatCount, lastTimestamp);
+        return true;
+    }
+
+    /**
+     * Counts count more occurrences of the entry, the latest at lastTimestamp. The aggregates
+     * count them at the entry's own timestamp, where eviction takes them back.
+     */
+    public void addRepeats(long position, int count, long lastTimestamp) {
+        int index = index(position);
+        repeatCounts[index] += count;
+        aggregates.onAdded(levels[index], timestamps[index], count);
+        lastTimestamps[index] = Math.max(lastTimestamps[index], lastTimestamp);
+    }
+
+    public void clear() {
+        startPosition = endPosition;
+        arenaStart = arenaEnd;
+        searchIndex.clear();
+        sourceIndex.clear();
+        facetIndex.clear();
+        aggregates.clear();
+        tags.clear();
+        files.clear();
+        sources.clear();
+    }
+
+    @Override
+    public long getStartPosition() {
+        return startPosition;
+    }
+
+    @Override
+    public long getEndPosition() {
+        return endPosition;
+    }
+
+    @Override
+    public int size() {
+        return (int) (endPosition - startPosition);
+    }
+
+    @Override
+    public boolean contains(long position) {
+        return position >= startPosition && position < endPosition;
+    }
+
+    @Override
+    public LogType getType(long position) {
+        return TYPES[levels[index(position)]];
+    }
+
+    @Override
+    public long getTimestamp(long position) {
+        return timestamps[index(position)];
+    }
+
+    @Override
+    public long getNanos(long position) {
+        return nanos[index(position)];
+    }
+
+    public int getTagId(long position) {
+        return tagIds[index(position)];
+    }
+
+    @Override
+    public String getTag(long position) {
+        return tags.get(tagIds[index(position)]);
+    }
+
+    public StringDictionary getTags() {
+        return tags;
+    }
+
+    @Override
+    public String getFileName(long position) {
+        return files.get(fileIds[index(position)]);
+    }
+
+    @Override
+    public int getLineNumber(long position) {
+        return lineNumbers[index(position)];
+    }
+
+    @Override
+    public String getSource(long position) {
+        return sources.get(sourceIds[index(position)]);
+    }
+
+    @Override
+    public long getSequence(long position) {
+        return sequences[index(position)];
+    }
+
+    @Override
+    public int getRepeatCount(long position) {
+        return repeatCounts[index(position)];
+    }
+
+    @Override
+    public long getLastTimestamp(long position) {
+        return lastTimestamps[index(position)];
+    }
+
+    @Override
+    public long getTraceFingerprint(long position) {
+        return traceFingerprints[index(position)];
+    }
+
+    @Override
+    public String getTrace(long fingerprint) {
+        return traces.get(fingerprint);
+    }
+
+    public TraceDictionary getTraces() {
+        return traces;
+    }
+
+    @Override
+    public String getMessage(long position) {
+        int index = index(position);
+        int length = messageLengths[index];
+        // A read racing with eviction may pair the length and offset of different entries;
+        // floorMod keeps it inside the arena and the check below throws the result away
+        int offset = (int) Math.floorMod(messageOffsets[index], (long) arenaCapacity);
+        int firstPart = Math.min(length, arenaCapacity - offset);
+        String message;
+        if (firstPart == length) {
+            message = new String(arena, offset, length);
+        } else {
+            char[] chars = new char[length];
+            System.arraycopy(arena, offset, chars, 0, firstPart);
+            System.arraycopy(arena, 0, chars, firstPart, length - firstPart);
+            message = new String(chars);
+        }
+        return contains(position) ? message : null;
+    }
+
+    @Override
+    public boolean messageContains(long position, String foldedQuery) {
+        int queryLength = foldedQuery.length();
+        if (queryLength == 0) {
+            return true;
+        }
+        int index = index(position);
+        int length = messageLengths[index];
+        int offset = (int) Math.floorMod(messageOffsets[index], (long) arenaCapacity);
+        char first = foldedQuery.charAt(0);
+        for (int i = 0; i + queryLength <= length; i++) {
+            if (TrigramIndex.fold(arena[(offset + i) % arenaCapacity]) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < queryLength
+                    && TrigramIndex.fold(arena[(offset + i + j) % arenaCapacity]) == foldedQuery.charAt(j)) {
+                j++;
+            }
+            if (j == queryLength) {
+                // The text may belong to a newer entry if this one was evicted meanwhile
+                return contains(position);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public PositionList searchCandidates(String foldedQuery, long from, long to) {
+        return searchIndex.candidates(foldedQuery, Math.max(from, startPosition), Math.min(to, endPosition));
+    }
+
+    @Override
+    public PositionList sourcePositions(String source, long from, long to) {
+        return sourceIndex.positions(source, Math.max(from, startPosition), Math.min(to, endPosition));
+    }
+
+    @Override
+    public PositionList facetPositions(boolean[] acceptedLevels, Predicate<String> tagFilter, long from, long to) {
+        PositionList result = new PositionList();
+        facetIndex.select(acceptedLevels, acceptedTags(tagFilter), Math.max(from, startPosition),
+                Math.min(to, endPosition), result);
+        return result;
+    }
+
+    @Override
+    public LogAggregates getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Bytes of message text currently retained in the arena.
+     */
+    public long getMessageBytes() {
+        return 2L * (arenaEnd - arenaStart);
+    }
+
+    public long getSearchIndexBytes() {
+        return searchIndex.getPostingBytes();
+    }
+
+    /**
+     * Heap held by the columns and the arena; fixed for the lifetime of the store.
+     */
+    public long getAllocatedBytes() {
+        long perEntry = 8 + 8 + 1 + 4 + 4 + 4 + 4 + 8 + 4 + 8 + 8 + 8 + 4;
+        return perEntry * capacity + 2L * arenaCapacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void evictOldest() {
+        long oldest = startPosition;
+        int index = index(oldest);
+        aggregates.onRemoved(levels[index], timestamps[index], repeatCounts[index]);
+        tags.release(tagIds[index]);
+        files.release(fileIds[index]);
+        sources.release(sourceIds[index]);
+        arenaStart = messageOffsets[index] + messageLengths[index];
+        startPosition = oldest + 1;
+    }
+
+    // Indexed by tag id; tags interned after this call are not accepted
+    private boolean[] acceptedTags(Predicate<String> tagFilter) {
+        if (tagFilter == null) {
+            return null;
+        }
+        boolean[] accepted = new boolean[tags.size()];
+        for (int id = 0; id < accepted.length; id++) {
+            accepted[id] = tagFilter.test(tags.get(id));
+        }
+        return accepted;
+    }
+
+    // Only called by the writer, so the slot cannot be evicted while it is compared
+    private boolean messageEquals(int index, String message) {
+        int length = messageLengths[index];
+        if (length != message.length()) {
+            return false;
+        }
+        int offset = (int) (messageOffsets[index] % arenaCapacity);
+        for (int i = 0; i < length; i++) {
+            if (arena[(offset + i) % arenaCapacity] != message.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeArena(long logicalOffset, String message, int length) {
+        int offset = (int) (logicalOffset % arenaCapacity);
+        int firstPart = Math.min(length, arenaCapacity - offset);
+        message.getChars(0, firstPart, arena, offset);
+        if (firstPart < length) {
+            message.getChars(firstPart, length, arena, 0);
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
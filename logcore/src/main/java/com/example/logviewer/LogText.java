@@ -0,0 +1,74 @@
+package com.example.logviewer;
+
+/**
+ * Message text processing: ANSI stripping at ingest and display rendering for bound rows.
+ */
+public final class LogText {
+    private static final char ESC = '\u001B';
+
+    private LogText() {
+    }
+
+    /**
+     * Removes SGR color sequences (ESC [ digits/semicolons m) in a single pass. The input is
+     * returned as-is, without allocating, when it contains no escape character.
+     */
+    public static String stripAnsiEscapeCodes(String input) {
+        if (input == null) {
+            return null;
+        }
+        int escape = input.indexOf(ESC);
+        if (escape < 0) {
+            return input;
+        }
+
+        int length = input.length();
+        StringBuilder builder = new StringBuilder(length);
+        int copyFrom = 0;
+        while (escape >= 0) {
+            int end = sequenceEnd(input, escape);
+            if (end > escape) {
+                builder.append(input, copyFrom, escape);
+                copyFrom = end;
+                escape = input.indexOf(ESC, end);
+            } else {
+                escape = input.indexOf(ESC, escape + 1);
+            }
+        }
+        builder.append(input, copyFrom, length);
+        return builder.toString();
+    }
+
+    /**
+     * Text shown for a row in the plain-text view.
+     */
+    public static String formatForDisplay(String tag, LogType type, String time, String message,
+                                          String fileName, int lineNumber) {
+        return new StringBuilder(64 + message.length())
+                .append(tag).append(": [").append(type).append("] ")
+                .append(time).append(" - ").append(message)
+                .append("\nFile: ").append(fileName != null ? fileName : "Unknown")
+                .append(", Line: ").append(lineNumber)
+                .toString();
+    }
+
+    // Index just past a color sequence starting at start, or start if there is none
+    private static int sequenceEnd(String input, int start) {
+        int i = start + 1;
+        if (i >= input.length() || input.charAt(i) != '[') {
+            return start;
+        }
+        i++;
+        while (i < input.length()) {
+            char c = input.charAt(i);
+            if (c == 'm') {
+                return i + 1;
+            }
+            if (c != ';' && (c < '0' || c > '9')) {
+                return start;
+            }
+            i++;
+        }
+        return start;
+    }
+}
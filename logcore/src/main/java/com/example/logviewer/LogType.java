@@ -0,0 +1,18 @@
+package com.example.logviewer;
+
+public enum LogType {
+    DEBUG(1), INFO(2), ERROR(4), WARNING(3), VERBOSE(0);
+
+    private final int severity;
+
+    LogType(int severity) {
+        this.severity = severity;
+    }
+
+    /**
+     * Ordering used by level comparisons: VERBOSE < DEBUG < INFO < WARNING < ERROR.
+     */
+    public int getSeverity() {
+        return severity;
+    }
+}
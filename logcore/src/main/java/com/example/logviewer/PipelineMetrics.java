@@ -0,0 +1,256 @@
+package com.example.logviewer;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Self-metrics of the path from OrsLogger.log to a row on screen.
+ *
+ * Counters are cumulative; rates are derived by comparing two {@link Snapshot}s. Latencies use
+ * the monotonic System.nanoTime() the sender stamps on every record, which is comparable across
+ * processes on the same device. Receive-to-display latency is tracked per received batch: the
+ * batch's end position and receive time are queued until the viewer reports that it has shown
+ * positions up to that point. Sender-side counters are kept per source, since every sending
+ * process reports its own.
+ */
+public class PipelineMetrics {
+    private static final int MAX_PENDING_BATCHES = 1024;
+    private static final int MAX_SENDERS = 64;
+
+    private final LogStore store;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    // Latest {emitted, dropped, queue depth} per source; the least recently heard from goes first
+    private final Map<String, long[]> senderStats = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_SENDERS;
+        }
+    };
+    private final LatencyHistogram emitToReceive = new LatencyHistogram();
+    private final LatencyHistogram receiveToDisplay = new LatencyHistogram();
+    // {end position, receive nanos, entry count} per batch not yet displayed
+    private final ArrayDeque<long[]> pendingBatches = new ArrayDeque<>();
+
+    public PipelineMetrics(LogStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Counters reported by a source with its latest batch; they replace that source's previous
+     * report only.
+     */
+    public void onSenderStats(String source, long emitted, long dropped, int queueDepth) {
+        synchronized (senderStats) {
+            senderStats.put(source != null ? source : "", new long[]{emitted, dropped, queueDepth});
+        }
+    }
+
+    public void onEmitToReceive(long latencyNanos) {
+        emitToReceive.record(latencyNanos);
+    }
+
+    /**
+     * A batch of count entries, received at receiveNanos, is stored below endPosition.
+     */
+    public void onBatchStored(long endPosition, int count, long receiveNanos) {
+        received.addAndGet(count);
+        synchronized (pendingBatches) {
+            if (pendingBatches.size() == MAX_PENDING_BATCHES) {
+                // Nobody is displaying; keep the queue bounded
+                pendingBatches.removeFirst();
+            }
+            pendingBatches.addLast(new long[]{endPosition, receiveNanos, count});
+        }
+    }
+
+    /**
+     * Entries below endPosition are on screen as of displayNanos.
+     */
+    public void onDisplayed(long endPosition, long displayNanos) {
+        synchronized (pendingBatches) {
+            while (!pendingBatches.isEmpty() && pendingBatches.peekFirst()[0] <= endPosition) {
+                long[] batch = pendingBatches.removeFirst();
+                receiveToDisplay.record(displayNanos - batch[1], batch[2]);
+            }
+        }
+    }
+
+    public void onFiltered(int count) {
+        filtered.addAndGet(count);
+    }
+
+    public void onRendered() {
+        rendered.incrementAndGet();
+    }
+
+    /**
+     * Entries missing from a source's sequence past the grace period.
+     */
+    public void onLost(long count) {
+        lost.addAndGet(count);
+    }
+
+    public void onReordered() {
+        reordered.incrementAndGet();
+    }
+
+    /**
+     * Called when the viewer clears its logs; batches still waiting for display never will be.
+     */
+    public void clearLatencies() {
+        emitToReceive.clear();
+        receiveToDisplay.clear();
+        synchronized (pendingBatches) {
+            pendingBatches.clear();
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    public static final class Snapshot {
+        public final long uptimeNanos;
+        /** Sender-side counters summed over all sources; -1 until a sender has reported them. */
+        public final long senderEmitted;
+        public final long senderDropped;
+        public final int senderQueueDepth;
+        /** The counters of each source, in the order they were last heard from. */
+        public final Map<String, Sender> senders;
+        public final long received;
+        public final long filtered;
+        public final long rendered;
+        public final long lost;
+        public final long reordered;
+        public final int storeEntries;
+        public final long storeMessageBytes;
+        public final long storeIndexBytes;
+        public final long storeAllocatedBytes;
+        public final Latency emitToReceive;
+        public final Latency receiveToDisplay;
+
+        Snapshot(PipelineMetrics metrics) {
+            uptimeNanos = System.nanoTime();
+            Map<String, Sender> senders = new LinkedHashMap<>();
+            long emitted = -1;
+            long dropped = -1;
+            int queueDepth = -1;
+            synchronized (metrics.senderStats) {
+                for (Map.Entry<String, long[]> entry : metrics.senderStats.entrySet()) {
+                    Sender sender = new Sender(entry.getValue());
+                    senders.put(entry.getKey(), sender);
+                    emitted = sum(emitted, sender.emitted);
+                    dropped = sum(dropped, sender.dropped);
+                    queueDepth = (int) sum(queueDepth, sender.queueDepth);
+                }
+            }
+            this.senders = Collections.unmodifiableMap(senders);
+            senderEmitted = emitted;
+            senderDropped = dropped;
+            senderQueueDepth = queueDepth;
+            received = metrics.received.get();
+            filtered = metrics.filtered.get();
+            rendered = metrics.rendered.get();
+            lost = metrics.lost.get();
+            reordered = metrics.reordered.get();
+            storeEntries = metrics.store.size();
+            storeMessageBytes = metrics.store.getMessageBytes();
+            storeIndexBytes = metrics.store.getSearchIndexBytes();
+            storeAllocatedBytes = metrics.store.getAllocatedBytes();
+            emitToReceive = new Latency(metrics.emitToReceive);
+            receiveToDisplay = new Latency(metrics.receiveToDisplay);
+        }
+
+        private static long sum(long total, long value) {
+            return value < 0 ? total : Math.max(total, 0) + value;
+        }
+
+        public String toJson() {
+            StringBuilder sources = new StringBuilder();
+            for (Map.Entry<String, Sender> entry : senders.entrySet()) {
+                sources.append(sources.length() == 0 ? "\n" : ",\n")
+                        .append("    ").append(jsonString(entry.getKey())).append(": ")
+                        .append(entry.getValue().toJson());
+            }
+            return "{\n"
+                    + "  \"uptimeNanos\": " + uptimeNanos + ",\n"
+                    + "  \"senderEmitted\": " + senderEmitted + ",\n"
+                    + "  \"senderDropped\": " + senderDropped + ",\n"
+                    + "  \"senderQueueDepth\": " + senderQueueDepth + ",\n"
+                    + "  \"senders\": {" + sources + (sources.length() > 0 ? "\n  " : "") + "},\n"
+                    + "  \"received\": " + received + ",\n"
+                    + "  \"filtered\": " + filtered + ",\n"
+                    + "  \"rendered\": " + rendered + ",\n"
+                    + "  \"lost\": " + lost + ",\n"
+                    + "  \"reordered\": " + reordered + ",\n"
+                    + "  \"storeEntries\": " + storeEntries + ",\n"
+                    + "  \"storeMessageBytes\": " + storeMessageBytes + ",\n"
+                    + "  \"storeIndexBytes\": " + storeIndexBytes + ",\n"
+                    + "  \"storeAllocatedBytes\": " + storeAllocatedBytes + ",\n"
+                    + "  \"emitToReceiveNanos\": " + emitToReceive.toJson() + ",\n"
+                    + "  \"receiveToDisplayNanos\": " + receiveToDisplay.toJson() + "\n"
+                    + "}\n";
+        }
+    }
+
+    public static final class Sender {
+        /** -1 where the source did not report the counter. */
+        public final long emitted;
+        public final long dropped;
+        public final int queueDepth;
+
+        Sender(long[] stats) {
+            emitted = stats[0];
+            dropped = stats[1];
+            queueDepth = (int) stats[2];
+        }
+
+        String toJson() {
+            return "{\"emitted\": " + emitted + ", \"dropped\": " + dropped
+                    + ", \"queueDepth\": " + queueDepth + "}";
+        }
+    }
+
+    public static final class Latency {
+        public final long count;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+
+        Latency(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            p50 = histogram.percentile(0.50);
+            p90 = histogram.percentile(0.90);
+            p99 = histogram.percentile(0.99);
+            max = histogram.getMax();
+        }
+
+        String toJson() {
+            return "{\"count\": " + count + ", \"p50\": " + p50 + ", \"p90\": " + p90
+                    + ", \"p99\": " + p99 + ", \"max\": " + max + "}";
+        }
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
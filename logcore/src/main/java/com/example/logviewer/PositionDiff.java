@@ -0,0 +1,56 @@
+package com.example.logviewer;
+
+/**
+ * Computes the edit script between two ascending position lists in a single merge pass
+ * (positions are unique and sorted, so no general-purpose diff is needed) and reports it as
+ * index-based range removals and insertions, applied front to back.
+ */
+public final class PositionDiff {
+    public interface Callback {
+        void onRemoved(int index, int count);
+
+        void onInserted(int index, int count);
+    }
+
+    private PositionDiff() {
+    }
+
+    public static void dispatch(PositionList oldList, PositionList newList, Callback callback) {
+        int oldIndex = 0;
+        int newIndex = 0;
+        // Index in the list as it looks after the operations reported so far
+        int cursor = 0;
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        while (oldIndex < oldSize || newIndex < newSize) {
+            int removed = 0;
+            while (oldIndex < oldSize
+                    && (newIndex >= newSize || oldList.get(oldIndex) < newList.get(newIndex))) {
+                oldIndex++;
+                removed++;
+            }
+            if (removed > 0) {
+                callback.onRemoved(cursor, removed);
+            }
+
+            int inserted = 0;
+            while (newIndex < newSize
+                    && (oldIndex >= oldSize || newList.get(newIndex) < oldList.get(oldIndex))) {
+                newIndex++;
+                inserted++;
+            }
+            if (inserted > 0) {
+                callback.onInserted(cursor, inserted);
+                cursor += inserted;
+            }
+
+            while (oldIndex < oldSize && newIndex < newSize
+                    && oldList.get(oldIndex) == newList.get(newIndex)) {
+                oldIndex++;
+                newIndex++;
+                cursor++;
+            }
+        }
+    }
+}
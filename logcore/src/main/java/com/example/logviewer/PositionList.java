@@ -0,0 +1,105 @@
+package com.example.logviewer;
+
+/**
+ * Growable list of primitive store positions, kept in ascending order by its users.
+ *
+ * Removing from the front only advances a head index; the live range is moved back to the
+ * start of the array when an append runs out of room, so trimming evicted positions costs
+ * O(1) per removed position however long the list is.
+ */
+public class PositionList {
+    private long[] positions;
+    private int head;
+    private int size;
+
+    public PositionList() {
+        this(256);
+    }
+
+    public PositionList(int initialCapacity) {
+        positions = new long[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(long position) {
+        ensureCapacity(size + 1);
+        positions[head + size++] = position;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return positions[head + index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public void addAll(PositionList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.positions, other.head, positions, head + size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Index of the first position that is >= the given one, or size() if there is none.
+     */
+    public int lowerBound(long position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[head + mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void removeFirst(int count) {
+        if (count <= 0) {
+            return;
+        }
+        count = Math.min(count, size);
+        head = count == size ? 0 : head + count;
+        size -= count;
+    }
+
+    /**
+     * Replaces the contents with a copy of the other list.
+     */
+    public void setAll(PositionList other) {
+        head = 0;
+        size = 0;
+        ensureCapacity(other.size);
+        System.arraycopy(other.positions, other.head, positions, 0, other.size);
+        size = other.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (head + capacity <= positions.length) {
+            return;
+        }
+        if (capacity <= positions.length / 2) {
+            // The head has moved past at least as many positions as are copied back here
+            System.arraycopy(positions, head, positions, 0, size);
+        } else {
+            long[] grown = new long[Math.max(capacity, positions.length * 2)];
+            System.arraycopy(positions, head, grown, 0, size);
+            positions = grown;
+        }
+        head = 0;
+    }
+}
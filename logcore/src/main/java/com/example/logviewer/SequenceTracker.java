@@ -0,0 +1,183 @@
+package com.example.logviewer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the sequence numbers each source stamps on its entries to find entries that never
+ * arrived and entries that arrived out of order.
+ *
+ * A jump in a source's sequence opens a gap. Entries arriving late are taken out of their gap
+ * and counted as reordered; a gap still open after the grace period is reported as lost, so
+ * entries that were merely overtaken by a later broadcast are not counted as lost.
+ *
+ * A source that restarts its sequence is recognized by a new session id. For senders without
+ * one, a sequence that starts over at 1 after 1 was already seen counts as a restart; a first
+ * entry that was overtaken by the next batch is just reordered. Not thread-safe.
+ */
+public class SequenceTracker {
+    public interface LossListener {
+        /**
+         * Sequence numbers first..last of the source never arrived. The timestamp is that of
+         * the entry that arrived right after them.
+         */
+        void onLost(String source, long first, long last, long timestamp);
+    }
+
+    // Beyond this many open gaps per source the oldest is reported without waiting
+    private static final int MAX_OPEN_GAPS = 64;
+
+    private final long gracePeriodNanos;
+    private final Map<String, Source> sources = new HashMap<>();
+    private long lostCount;
+    private long reorderedCount;
+
+    public SequenceTracker(long gracePeriodNanos) {
+        this.gracePeriodNanos = gracePeriodNanos;
+    }
+
+    /**
+     * Records an entry received at nowNanos. Returns false if it arrived after a later entry of
+     * the same source. Entries without a source or sequence number are always in order.
+     */
+    public boolean onReceived(String source, long sequence, long timestamp, long nowNanos,
+                              LossListener listener) {
+        return onReceived(source, sequence, sequence, timestamp, nowNanos, listener);
+    }
+
+    /**
+     * Same as {@link #onReceived(String, long, long, long, LossListener)} for an entry that
+     * stands for the consecutive sequence numbers first..last, such as a coalesced repeat.
+     */
+    public boolean onReceived(String source, long first, long last, long timestamp, long nowNanos,
+                              LossListener listener) {
+        return onReceived(source, 0, first, last, timestamp, nowNanos, listener);
+    }
+
+    /**
+     * Same as {@link #onReceived(String, long, long, long, long, LossListener)} from a sender
+     * that identifies each run of its sequence with a session id; 0 if it has none.
+     */
+    public boolean onReceived(String source, long session, long first, long last, long timestamp,
+                              long nowNanos, LossListener listener) {
+        if (source == null || first <= 0) {
+            return true;
+        }
+        Source state = sources.get(source);
+        boolean restarted = state != null && (session != 0 && state.session != 0
+                ? session != state.session
+                : first == 1 && state.sawFirst);
+        if (state == null || restarted) {
+            if (state != null) {
+                reportAll(source, state, listener);
+            }
+            state = new Source();
+            state.session = session;
+            state.next = last + 1;
+            state.sawFirst = first == 1;
+            sources.put(source, state);
+            return true;
+        }
+        if (session != 0 && state.session == 0) {
+            state.session = session;
+        }
+        state.sawFirst |= first == 1;
+
+        if (first >= state.next) {
+            if (first > state.next) {
+                if (state.gaps.size() == MAX_OPEN_GAPS) {
+                    report(source, state.gaps.remove(0), listener);
+                }
+                state.gaps.add(new Gap(state.next, first - 1, nowNanos, timestamp));
+            }
+            state.next = last + 1;
+            return true;
+        }
+
+        reorderedCount++;
+        List<Gap> gaps = state.gaps;
+        for (int i = 0; i < gaps.size(); ) {
+            Gap gap = gaps.get(i);
+            if (last < gap.first || first > gap.last) {
+                i++;
+            } else if (first <= gap.first && last >= gap.last) {
+                gaps.remove(i);
+            } else if (first <= gap.first) {
+                gap.first = last + 1;
+                i++;
+            } else if (last >= gap.last) {
+                gap.last = first - 1;
+                i++;
+            } else {
+                gaps.add(i + 1, new Gap(last + 1, gap.last, gap.openedNanos, gap.timestamp));
+                gap.last = first - 1;
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports the gaps that have been open for longer than the grace period. Returns the nanos
+     * until the next open gap is due, or -1 if there is none.
+     */
+    public long expire(long nowNanos, LossListener listener) {
+        long nextDue = -1;
+        for (Map.Entry<String, Source> entry : sources.entrySet()) {
+            List<Gap> gaps = entry.getValue().gaps;
+            while (!gaps.isEmpty()) {
+                long due = gaps.get(0).openedNanos + gracePeriodNanos - nowNanos;
+                if (due > 0) {
+                    nextDue = nextDue < 0 ? due : Math.min(nextDue, due);
+                    break;
+                }
+                report(entry.getKey(), gaps.remove(0), listener);
+            }
+        }
+        return nextDue;
+    }
+
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    public long getReorderedCount() {
+        return reorderedCount;
+    }
+
+    private void reportAll(String source, Source state, LossListener listener) {
+        for (Gap gap : state.gaps) {
+            report(source, gap, listener);
+        }
+        state.gaps.clear();
+    }
+
+    private void report(String source, Gap gap, LossListener listener) {
+        lostCount += gap.last - gap.first + 1;
+        listener.onLost(source, gap.first, gap.last, gap.timestamp);
+    }
+
+    private static final class Source {
+        long session;
+        long next;
+        boolean sawFirst;
+        // Ascending and disjoint
+        final List<Gap> gaps = new ArrayList<>();
+    }
+
+    private static final class Gap {
+        long first;
+        long last;
+        final long openedNanos;
+        final long timestamp;
+
+        Gap(long first, long last, long openedNanos, long timestamp) {
+            this.first = first;
+            this.last = last;
+            this.openedNanos = openedNanos;
+            this.timestamp = timestamp;
+        }
+    }
+}
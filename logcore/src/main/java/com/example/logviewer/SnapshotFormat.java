@@ -0,0 +1,81 @@
+package com.example.logviewer;
+
+/**
+ * Layout of a log snapshot file (all values big-endian):
+ *
+ * <pre>
+ * header      magic "ORSLOGSN", int version, int blockSize, long entryCount, int blockCount,
+ *             long dictionaryOffset, long indexOffset, long tracesOffset, padded to HEADER_SIZE
+ * blocks      blockSize entries each (the last one may hold fewer), stored column by column:
+ *             long[n] timestamps, long[n] nanos, byte[n] levels (padded to 4),
+ *             int[n] tag ids, int[n] file ids, int[n] line numbers,
+ *             int[n] source ids, long[n] sequence numbers, int[n] repeat counts,
+ *             long[n] last timestamps, long[n] trace fingerprints,
+ *             int[n + 1] message offsets, then the UTF-8 message bytes
+ * dictionary  int count, then per string int byte length (-1 for null) and UTF-8 bytes;
+ *             shared by tags, file names and sources
+ * index       per block long offset, int entry count, long min and max timestamp
+ * traces      int count, then per trace long fingerprint, int byte length and UTF-8 bytes
+ * </pre>
+ *
+ * The fixed-width columns let a reader address any entry directly in a mapped file.
+ */
+final class SnapshotFormat {
+    static final byte[] MAGIC = {'O', 'R', 'S', 'L', 'O', 'G', 'S', 'N'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+    static final int INDEX_ENTRY_SIZE = 8 + 4 + 8 + 8;
+    static final String FILE_EXTENSION = ".orslog";
+
+    private SnapshotFormat() {
+    }
+
+    static long nanosOffset(int count) {
+        return 8L * count;
+    }
+
+    static long levelsOffset(int count) {
+        return 16L * count;
+    }
+
+    static long tagIdsOffset(int count) {
+        return levelsOffset(count) + ((count + 3) & ~3);
+    }
+
+    static long fileIdsOffset(int count) {
+        return tagIdsOffset(count) + 4L * count;
+    }
+
+    static long lineNumbersOffset(int count) {
+        return fileIdsOffset(count) + 4L * count;
+    }
+
+    static long sourceIdsOffset(int count) {
+        return lineNumbersOffset(count) + 4L * count;
+    }
+
+    static long sequencesOffset(int count) {
+        return sourceIdsOffset(count) + 4L * count;
+    }
+
+    static long repeatCountsOffset(int count) {
+        return sequencesOffset(count) + 8L * count;
+    }
+
+    static long lastTimestampsOffset(int count) {
+        return repeatCountsOffset(count) + 4L * count;
+    }
+
+    static long traceFingerprintsOffset(int count) {
+        return lastTimestampsOffset(count) + 8L * count;
+    }
+
+    static long messageOffsetsOffset(int count) {
+        return traceFingerprintsOffset(count) + 8L * count;
+    }
+
+    static long messageDataOffset(int count) {
+        return messageOffsetsOffset(count) + 4L * (count + 1);
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.logviewer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Read-only {@link LogReader} over a memory-mapped snapshot file.
+ *
+ * Only the header, block index and string dictionary are decoded when the file is opened (the
+ * level and message offset columns are scanned once to validate them); entry columns are read
+ * straight from the mapping when they are asked for, so the page cache rather than the heap
+ * holds the capture. Positions run from 0 to the entry count. Safe to use
+ * from any thread.
+ */
+public class SnapshotReader implements LogReader {
+    private static final LogType[] TYPES = LogType.values();
+
+    private final ByteBuffer buffer;
+    private final String name;
+    private final long entryCount;
+    private final int blockSize;
+    private final long[] blockOffsets;
+    private final int[] blockCounts;
+    private final String[] dictionary;
+    private final Map<Long, String> traces = new HashMap<>();
+    private LogAggregates aggregates;
+
+    public static SnapshotReader open(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return new SnapshotReader(in.getChannel(), file.getName());
+        }
+    }
+
+    /**
+     * Maps the whole channel; the mapping stays valid after the channel is closed. Checks that
+     * every block, dictionary string and trace lies within the file, and that every level and
+     * message offset is in range, so nothing read later can run off the mapping.
+     */
+    public SnapshotReader(FileChannel channel, String name) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot larger than 2 GB");
+        }
+        if (size < SnapshotFormat.HEADER_SIZE) {
+            throw new IOException("Not a log snapshot");
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        this.name = name;
+
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        buffer.duplicate().get(magic);
+        if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) {
+            throw new IOException("Not a log snapshot");
+        }
+        int version = buffer.getInt(8);
+        if (version != SnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        this.blockSize = buffer.getInt(12);
+        this.entryCount = buffer.getLong(16);
+        int blockCount = buffer.getInt(24);
+        long dictionaryOffset = buffer.getLong(28);
+        long indexOffset = buffer.getLong(36);
+        long tracesOffset = buffer.getLong(44);
+        if (blockSize <= 0 || blockCount < 0 || entryCount < 0
+                || blockCount != (entryCount + blockSize - 1) / blockSize
+                || dictionaryOffset < SnapshotFormat.HEADER_SIZE || dictionaryOffset > size
+                || indexOffset < dictionaryOffset
+                || indexOffset + (long) blockCount * SnapshotFormat.INDEX_ENTRY_SIZE > tracesOffset
+                || tracesOffset > size) {
+            throw new IOException("Corrupt snapshot header");
+        }
+
+        blockOffsets = new long[blockCount];
+        blockCounts = new int[blockCount];
+        int indexEntry = (int) indexOffset;
+        long remaining = entryCount;
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = buffer.getLong(indexEntry);
+            blockCounts[i] = buffer.getInt(indexEntry + 8);
+            indexEntry += SnapshotFormat.INDEX_ENTRY_SIZE;
+            // Positions map to blocks by division, so every block but the last must be full
+            if (blockCounts[i] != Math.min(blockSize, remaining)) {
+                throw new IOException("Corrupt snapshot index");
+            }
+            remaining -= blockCounts[i];
+            checkBlock(blockOffsets[i], blockCounts[i], dictionaryOffset);
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) dictionaryOffset);
+        view.limit((int) indexOffset);
+        dictionary = new String[count(view, 4)];
+        for (int id = 0; id < dictionary.length; id++) {
+            int length = length(view);
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                view.get(bytes);
+                dictionary[id] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        view.limit((int) size);
+        view.position((int) tracesOffset);
+        int traceCount = count(view, 12);
+        for (int i = 0; i < traceCount; i++) {
+            if (view.remaining() < 8) {
+                throw new IOException("Corrupt snapshot traces");
+            }
+            long fingerprint = view.getLong();
+            int length = length(view);
+            if (length < 0) {
+                throw new IOException("Corrupt snapshot traces");
+            }
+            byte[] bytes = new byte[length];
+            view.get(bytes);
+            traces.put(fingerprint, new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void checkBlock(long offset, int count, long end) throws IOException {
+        if (offset < SnapshotFormat.HEADER_SIZE || offset + SnapshotFormat.messageDataOffset(count) > end) {
+            throw new IOException("Corrupt snapshot block");
+        }
+        int levels = (int) (offset + SnapshotFormat.levelsOffset(count));
+        for (int i = 0; i < count; i++) {
+            int level = buffer.get(levels + i);
+            if (level < 0 || level >= TYPES.length) {
+                throw new IOException("Corrupt snapshot block");
+            }
+        }
+        int offsets = (int) (offset + SnapshotFormat.messageOffsetsOffset(count));
+        long available = end - offset - SnapshotFormat.messageDataOffset(count);
+        int previous = 0;
+        for (int i = 0; i <= count; i++) {
+            int messageOffset = buffer.getInt(offsets + 4 * i);
+            if (messageOffset < previous || messageOffset > available || (i == 0 && messageOffset != 0)) {
+                throw new IOException("Corrupt snapshot block");
+            }
+            previous = messageOffset;
+        }
+    }
+
+    /**
+     * Reads an element count, checking that that many elements of at least minBytes each fit
+     * in what is left of the view.
+     */
+    private static int count(ByteBuffer view, int minBytes) throws IOException {
+        if (view.remaining() < 4) {
+            throw new IOException("Corrupt snapshot");
+        }
+        int count = view.getInt();
+        if (count < 0 || (long) count * minBytes > view.remaining()) {
+            throw new IOException("Corrupt snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Reads a string byte length, -1 standing for null, checking that the bytes fit in the view.
+     */
+    private static int length(ByteBuffer view) throws IOException {
+        if (view.remaining() < 4) {
+            throw new IOException("Corrupt snapshot");
+        }
+        int length = view.getInt();
+        if (length < -1 || length > view.remaining()) {
+            throw new IOException("Corrupt snapshot");
+        }
+        return length;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getStartPosition() {
+        return 0;
+    }
+
+    @Override
+    public long getEndPosition() {
+        return entryCount;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, entryCount);
+    }
+
+    @Override
+    public boolean contains(long position) {
+        return position >= 0 && position < entryCount;
+    }
+
+    @Override
+    public LogType getType(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return TYPES[buffer.get(column(block, SnapshotFormat.levelsOffset(count)) + slot(position))];
+    }
+
+    @Override
+    public long getTimestamp(long position) {
+        int block = block(position);
+        return buffer.getLong(column(block, 0) + 8 * slot(position));
+    }
+
+    @Override
+    public long getNanos(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getLong(column(block, SnapshotFormat.nanosOffset(count)) + 8 * slot(position));
+    }
+
+    @Override
+    public String getTag(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return string(buffer.getInt(column(block, SnapshotFormat.tagIdsOffset(count)) + 4 * slot(position)));
+    }
+
+    @Override
+    public String getFileName(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return string(buffer.getInt(column(block, SnapshotFormat.fileIdsOffset(count)) + 4 * slot(position)));
+    }
+
+    @Override
+    public int getLineNumber(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getInt(column(block, SnapshotFormat.lineNumbersOffset(count)) + 4 * slot(position));
+    }
+
+    @Override
+    public String getSource(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return string(buffer.getInt(column(block, SnapshotFormat.sourceIdsOffset(count)) + 4 * slot(position)));
+    }
+
+    @Override
+    public long getSequence(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getLong(column(block, SnapshotFormat.sequencesOffset(count)) + 8 * slot(position));
+    }
+
+    @Override
+    public int getRepeatCount(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getInt(column(block, SnapshotFormat.repeatCountsOffset(count)) + 4 * slot(position));
+    }
+
+    @Override
+    public long getLastTimestamp(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getLong(column(block, SnapshotFormat.lastTimestampsOffset(count)) + 8 * slot(position));
+    }
+
+    @Override
+    public long getTraceFingerprint(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        return buffer.getLong(column(block, SnapshotFormat.traceFingerprintsOffset(count)) + 8 * slot(position));
+    }
+
+    @Override
+    public String getTrace(long fingerprint) {
+        return traces.get(fingerprint);
+    }
+
+    @Override
+    public String getMessage(long position) {
+        int block = block(position);
+        int count = blockCounts[block];
+        int offsets = column(block, SnapshotFormat.messageOffsetsOffset(count)) + 4 * slot(position);
+        int start = buffer.getInt(offsets);
+        int end = buffer.getInt(offsets + 4);
+
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(column(block, SnapshotFormat.messageDataOffset(count)) + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean messageContains(long position, String foldedQuery) {
+        return foldedQuery.isEmpty() || TrigramIndex.containsFolded(getMessage(position), foldedQuery);
+    }
+
+    @Override
+    public PositionList searchCandidates(String foldedQuery, long from, long to) {
+        return null;
+    }
+
+    @Override
+    public PositionList sourcePositions(String source, long from, long to) {
+        return null;
+    }
+
+    @Override
+    public PositionList facetPositions(boolean[] acceptedLevels, Predicate<String> tagFilter, long from, long to) {
+        return null;
+    }
+
+    /**
+     * Built on first use with one pass over the level, timestamp and repeat columns of every
+     * block, so the first call belongs on a background thread.
+     */
+    @Override
+    public synchronized LogAggregates getAggregates() {
+        if (aggregates == null) {
+            LogAggregates built = new LogAggregates();
+            for (long position = 0; position < entryCount; position++) {
+                built.onAdded(getType(position).ordinal(), getTimestamp(position), getRepeatCount(position));
+            }
+            aggregates = built;
+        }
+        return aggregates;
+    }
+
+    private int block(long position) {
+        return (int) (position / blockSize);
+    }
+
+    private int slot(long position) {
+        return (int) (position % blockSize);
+    }
+
+    private int column(int block, long columnOffset) {
+        return (int) (blockOffsets[block] + columnOffset);
+    }
+
+    private String string(int id) {
+        return id >= 0 && id < dictionary.length ? dictionary[id] : null;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.logviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the entries of a {@link LogReader} to a snapshot file in {@link SnapshotFormat}.
+ */
+public final class SnapshotWriter {
+    private SnapshotWriter() {
+    }
+
+    /**
+     * Writes the entries retained by the reader when the call starts. Entries evicted while the
+     * snapshot is being written are left out. Returns the number of entries written.
+     */
+    public static long write(LogReader reader, File file) throws IOException {
+        int blockSize = SnapshotFormat.DEFAULT_BLOCK_SIZE;
+        StringDictionary dictionary = new StringDictionary();
+        Block block = new Block(blockSize);
+        PositionList blockOffsets = new PositionList();
+        PositionList blockRanges = new PositionList();
+        long entryCount = 0;
+        Map<Long, String> traces = new LinkedHashMap<>();
+
+        try (FileOutputStream fileOut = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            out.write(new byte[SnapshotFormat.HEADER_SIZE]);
+            long offset = SnapshotFormat.HEADER_SIZE;
+
+            long end = reader.getEndPosition();
+            for (long position = reader.getStartPosition(); position < end; position++) {
+                long timestamp = reader.getTimestamp(position);
+                long nanos = reader.getNanos(position);
+                LogType type = reader.getType(position);
+                String tag = reader.getTag(position);
+                String fileName = reader.getFileName(position);
+                int lineNumber = reader.getLineNumber(position);
+                String source = reader.getSource(position);
+                long sequence = reader.getSequence(position);
+                int repeatCount = reader.getRepeatCount(position);
+                long lastTimestamp = reader.getLastTimestamp(position);
+                long traceFingerprint = reader.getTraceFingerprint(position);
+                String message = reader.getMessage(position);
+                // The slot may have been reused while it was read
+                if (!reader.contains(position)) {
+                    continue;
+                }
+
+                block.add(timestamp, nanos, type, dictionary.intern(tag), dictionary.intern(fileName),
+                        lineNumber, dictionary.intern(source), sequence, repeatCount, lastTimestamp,
+                        traceFingerprint, message);
+                if (traceFingerprint != 0 && !traces.containsKey(traceFingerprint)) {
+                    String trace = reader.getTrace(traceFingerprint);
+                    if (trace != null) {
+                        traces.put(traceFingerprint, trace);
+                    }
+                }
+                entryCount++;
+                if (block.count == blockSize) {
+                    blockOffsets.add(offset);
+                    blockRanges.add(block.minTimestamp);
+                    blockRanges.add(block.maxTimestamp);
+                    offset += block.writeTo(out);
+                }
+            }
+            if (block.count > 0) {
+                blockOffsets.add(offset);
+                blockRanges.add(block.minTimestamp);
+                blockRanges.add(block.maxTimestamp);
+                offset += block.writeTo(out);
+            }
+
+            long dictionaryOffset = offset;
+            out.writeInt(dictionary.size());
+            offset += 4;
+            for (int id = 0; id < dictionary.size(); id++) {
+                String value = dictionary.get(id);
+                if (value == null) {
+                    out.writeInt(-1);
+                    offset += 4;
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    offset += 4 + bytes.length;
+                }
+            }
+
+            long indexOffset = offset;
+            for (int i = 0; i < blockOffsets.size(); i++) {
+                long blockEntries = i < blockOffsets.size() - 1 ? blockSize : entryCount - (long) i * blockSize;
+                out.writeLong(blockOffsets.get(i));
+                out.writeInt((int) blockEntries);
+                out.writeLong(blockRanges.get(2 * i));
+                out.writeLong(blockRanges.get(2 * i + 1));
+            }
+
+            long tracesOffset = offset + (long) blockOffsets.size() * SnapshotFormat.INDEX_ENTRY_SIZE;
+            out.writeInt(traces.size());
+            for (Map.Entry<Long, String> trace : traces.entrySet()) {
+                byte[] bytes = trace.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeLong(trace.getKey());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.HEADER_SIZE);
+            header.put(SnapshotFormat.MAGIC)
+                    .putInt(SnapshotFormat.VERSION)
+                    .putInt(blockSize)
+                    .putLong(entryCount)
+                    .putInt(blockOffsets.size())
+                    .putLong(dictionaryOffset)
+                    .putLong(indexOffset)
+                    .putLong(tracesOffset);
+            header.rewind();
+            fileOut.getChannel().write(header, 0);
+        }
+        return entryCount;
+    }
+
+    private static final class Block {
+        final long[] timestamps;
+        final long[] nanos;
+        final byte[] levels;
+        final int[] tagIds;
+        final int[] fileIds;
+        final int[] lineNumbers;
+        final int[] sourceIds;
+        final long[] sequences;
+        final int[] repeatCounts;
+        final long[] lastTimestamps;
+        final long[] traceFingerprints;
+        final byte[][] messages;
+        int count;
+        long messageBytes;
+        long minTimestamp;
+        long maxTimestamp;
+
+        Block(int size) {
+            timestamps = new long[size];
+            nanos = new long[size];
+            levels = new byte[size];
+            tagIds = new int[size];
+            fileIds = new int[size];
+            lineNumbers = new int[size];
+            sourceIds = new int[size];
+            sequences = new long[size];
+            repeatCounts = new int[size];
+            lastTimestamps = new long[size];
+            traceFingerprints = new long[size];
+            messages = new byte[size][];
+        }
+
+        void add(long timestamp, long nanoTime, LogType type, int tagId, int fileId, int lineNumber,
+                 int sourceId, long sequence, int repeatCount, long lastTimestamp, long traceFingerprint,
+                 String message) {
+            if (count == 0) {
+                minTimestamp = timestamp;
+                maxTimestamp = timestamp;
+            } else {
+                minTimestamp = Math.min(minTimestamp, timestamp);
+                maxTimestamp = Math.max(maxTimestamp, timestamp);
+            }
+            timestamps[count] = timestamp;
+            nanos[count] = nanoTime;
+            levels[count] = (byte) type.ordinal();
+            tagIds[count] = tagId;
+            fileIds[count] = fileId;
+            lineNumbers[count] = lineNumber;
+            sourceIds[count] = sourceId;
+            sequences[count] = sequence;
+            repeatCounts[count] = repeatCount;
+            lastTimestamps[count] = lastTimestamp;
+            traceFingerprints[count] = traceFingerprint;
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            messages[count] = bytes;
+            messageBytes += bytes.length;
+            count++;
+        }
+
+        /**
+         * Writes the block and resets it; returns the number of bytes written.
+         */
+        long writeTo(DataOutputStream out) throws IOException {
+            if (messageBytes > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot block too large");
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(timestamps[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(nanos[i]);
+            }
+            out.write(levels, 0, count);
+            for (int i = count; i < ((count + 3) & ~3); i++) {
+                out.write(0);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(tagIds[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(fileIds[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(lineNumbers[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(sourceIds[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(sequences[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(repeatCounts[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(lastTimestamps[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(traceFingerprints[i]);
+            }
+            int messageOffset = 0;
+            for (int i = 0; i < count; i++) {
+                out.writeInt(messageOffset);
+                messageOffset += messages[i].length;
+            }
+            out.writeInt(messageOffset);
+            for (int i = 0; i < count; i++) {
+                out.write(messages[i]);
+                messages[i] = null;
+            }
+
+            long written = SnapshotFormat.messageDataOffset(count) + messageBytes;
+            count = 0;
+            messageBytes = 0;
+            return written;
+        }
+    }
+}
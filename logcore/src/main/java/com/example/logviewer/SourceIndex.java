@@ -0,0 +1,69 @@
+package com.example.logviewer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Positions of each source's entries, so filtering by source visits only that source's
+ * entries instead of testing every entry in the range. Entries without a source are not
+ * indexed.
+ *
+ * Writes come from the store's writer; queries may come from any thread.
+ */
+public class SourceIndex {
+    private final Map<String, PositionList> positions = new HashMap<>();
+    private final long compactionInterval;
+    private long compactedUpTo;
+
+    /**
+     * @param compactionInterval how many evicted positions to accumulate before the lists are
+     *                           rewritten without them
+     */
+    public SourceIndex(long compactionInterval) {
+        this.compactionInterval = Math.max(1, compactionInterval);
+    }
+
+    public synchronized void add(long position, String source) {
+        if (source == null) {
+            return;
+        }
+        PositionList list = positions.get(source);
+        if (list == null) {
+            list = new PositionList();
+            positions.put(source, list);
+        }
+        list.add(position);
+    }
+
+    /**
+     * Drops positions below the store's start position once enough of them have accumulated.
+     */
+    public synchronized void onEvicted(long startPosition) {
+        if (startPosition - compactedUpTo < compactionInterval) {
+            return;
+        }
+        positions.values().removeIf(list -> {
+            list.removeFirst(list.lowerBound(startPosition));
+            return list.isEmpty();
+        });
+        compactedUpTo = startPosition;
+    }
+
+    /**
+     * Ascending positions in [from, to) of the source's entries; empty if it has none.
+     */
+    public synchronized PositionList positions(String source, long from, long to) {
+        PositionList result = new PositionList();
+        PositionList list = positions.get(source);
+        if (list != null) {
+            for (int i = list.lowerBound(from); i < list.size() && list.get(i) < to; i++) {
+                result.add(list.get(i));
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        positions.clear();
+    }
+}
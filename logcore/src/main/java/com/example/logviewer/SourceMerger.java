@@ -0,0 +1,138 @@
+package com.example.logviewer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Merges the entries of several sources into one timeline ordered by emit time.
+ *
+ * Each source has its own FIFO, kept in the order the source sent its entries. An entry is
+ * held until the reordering window has passed since it was emitted, so an earlier entry from
+ * another source that arrives a little later can still be placed before it; then the heads of
+ * the FIFOs are merged by emit time. An entry that arrives after its window has passed goes
+ * out with the next release, after what was already released. With a single active source
+ * there is nothing to merge and entries are released right away. Not thread-safe.
+ *
+ * Emit times are the senders' System.nanoTime(), the one monotonic clock of the device, so
+ * they are comparable across processes.
+ */
+public class SourceMerger<T> {
+    public interface Sink<T> {
+        void onReleased(T item);
+    }
+
+    // A source that sent nothing for this long no longer holds back the others
+    private static final long IDLE_NANOS = 10_000_000_000L;
+
+    private final long windowNanos;
+    private final int maxPending;
+    private final Map<String, Queue<T>> queues = new HashMap<>();
+    private int pending;
+
+    /**
+     * @param maxPending past this many held entries the oldest are released without waiting
+     *                   for the window
+     */
+    public SourceMerger(long windowNanos, int maxPending) {
+        this.windowNanos = windowNanos;
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    /**
+     * Queues an item from the source (null for entries without one) emitted at emitNanos.
+     */
+    public void add(String source, long emitNanos, long nowNanos, T item) {
+        Queue<T> queue = queues.get(source);
+        if (queue == null) {
+            queue = new Queue<>();
+            queues.put(source, queue);
+        }
+        queue.add(emitNanos, item);
+        queue.lastAddNanos = nowNanos;
+        pending++;
+    }
+
+    /**
+     * Releases, in emit order, the items whose window has passed. Returns the nanos until the
+     * next held item is due, or -1 if nothing is held.
+     */
+    public long release(long nowNanos, Sink<T> sink) {
+        Iterator<Queue<T>> idle = queues.values().iterator();
+        while (idle.hasNext()) {
+            Queue<T> queue = idle.next();
+            if (queue.items.isEmpty() && nowNanos - queue.lastAddNanos > IDLE_NANOS) {
+                idle.remove();
+            }
+        }
+        boolean merging = windowNanos > 0 && queues.size() > 1;
+        while (pending > 0) {
+            Queue<T> oldest = oldestHead();
+            long due = oldest.headKey() + windowNanos - nowNanos;
+            if (merging && due > 0 && pending <= maxPending) {
+                return due;
+            }
+            pending--;
+            sink.onReleased(oldest.remove());
+        }
+        return -1;
+    }
+
+    /**
+     * Releases every held item in emit order.
+     */
+    public void flush(Sink<T> sink) {
+        while (pending > 0) {
+            Queue<T> oldest = oldestHead();
+            pending--;
+            sink.onReleased(oldest.remove());
+        }
+    }
+
+    public int getPendingCount() {
+        return pending;
+    }
+
+    // Linear in the number of sources, which stays in the single digits
+    private Queue<T> oldestHead() {
+        Queue<T> oldest = null;
+        for (Queue<T> queue : queues.values()) {
+            if (!queue.items.isEmpty() && (oldest == null || queue.headKey() - oldest.headKey() < 0)) {
+                oldest = queue;
+            }
+        }
+        return oldest;
+    }
+
+    // The items with their emit times, which are kept in a ring of primitives beside them
+    private static final class Queue<T> {
+        final ArrayDeque<T> items = new ArrayDeque<>();
+        long[] keys = new long[16];
+        int head;
+        long lastAddNanos;
+
+        void add(long key, T item) {
+            int size = items.size();
+            if (size == keys.length) {
+                long[] grown = new long[keys.length * 2];
+                int tail = keys.length - head;
+                System.arraycopy(keys, head, grown, 0, tail);
+                System.arraycopy(keys, 0, grown, tail, head);
+                keys = grown;
+                head = 0;
+            }
+            keys[(head + size) & (keys.length - 1)] = key;
+            items.addLast(item);
+        }
+
+        long headKey() {
+            return keys[head];
+        }
+
+        T remove() {
+            head = (head + 1) & (keys.length - 1);
+            return items.pollFirst();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.logviewer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The retained entries that came from one source.
+ */
+public class SourceSummary {
+    private final String source;
+    private long count;
+    private long lastTimestamp;
+
+    SourceSummary(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Summarizes the sources of the reader's entries, the one with the most entries first.
+     * Entries without a source are left out.
+     */
+    public static List<SourceSummary> collect(LogReader reader) {
+        Map<String, SourceSummary> summaries = new HashMap<>();
+        long end = reader.getEndPosition();
+        for (long position = reader.getStartPosition(); position < end; position++) {
+            String source = reader.getSource(position);
+            long timestamp = reader.getLastTimestamp(position);
+            if (source == null || !reader.contains(position)) {
+                continue;
+            }
+            SourceSummary summary = summaries.get(source);
+            if (summary == null) {
+                summary = new SourceSummary(source);
+                summaries.put(source, summary);
+            }
+            summary.count++;
+            summary.lastTimestamp = Math.max(summary.lastTimestamp, timestamp);
+        }
+
+        List<SourceSummary> sorted = new ArrayList<>(summaries.values());
+        Collections.sort(sorted, (a, b) -> a.count != b.count
+                ? Long.compare(b.count, a.count)
+                : a.source.compareTo(b.source));
+        return sorted;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Retained entries from the source.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
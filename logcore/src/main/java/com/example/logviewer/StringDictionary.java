@@ -0,0 +1,97 @@
+package com.example.logviewer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns strings to dense int ids so columns can store an id instead of a reference.
+ *
+ * Every {@link #intern} takes a reference to the id and {@link #release} drops one. An id
+ * without references is forgotten and handed out again, so a store that releases the ids of
+ * the entries it evicts keeps at most one id per retained entry, however many distinct values
+ * pass through it.
+ *
+ * Only the store's writer thread calls {@link #intern}, {@link #release} and {@link #clear};
+ * {@link #get} may be called from any thread. A read racing with eviction may see the value
+ * that took over the id, so as with every column read the caller checks the entry is still
+ * retained afterwards.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] values = new String[64];
+    private int[] references = new int[64];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private volatile int size;
+
+    public int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            references[id]++;
+            return id;
+        }
+
+        String[] current = values;
+        int newId;
+        if (freeCount > 0) {
+            newId = freeIds[--freeCount];
+        } else {
+            newId = size;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                references = Arrays.copyOf(references, current.length);
+            }
+        }
+        current[newId] = value;
+        values = current;
+        references[newId] = 1;
+        ids.put(value, newId);
+        size = Math.max(size, newId + 1);
+        return newId;
+    }
+
+    /**
+     * Drops a reference taken by {@link #intern}; the id is reused once none are left.
+     */
+    public void release(int id) {
+        if (--references[id] > 0) {
+            return;
+        }
+        ids.remove(values[id]);
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Forgets every value; ids are handed out from 0 again.
+     */
+    public void clear() {
+        ids.clear();
+        Arrays.fill(references, 0);
+        freeCount = 0;
+        size = 0;
+    }
+
+    public String get(int id) {
+        String[] current = values;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Id of a value that has already been interned, or -1. Writer thread only.
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * One more than the highest id handed out; ids below it that are free map to stale values.
+     */
+    public int size() {
+        return size;
+    }
+}
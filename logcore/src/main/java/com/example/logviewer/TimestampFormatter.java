@@ -0,0 +1,37 @@
+package com.example.logviewer;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Formats epoch-millis timestamps as "yyyy-MM-dd HH:mm:ss.SSS" for display.
+ *
+ * Logs arrive in bursts that share the same second, so the formatted second is cached and
+ * only the milliseconds are appended per call. Not thread-safe; use one instance per thread.
+ */
+public class TimestampFormatter {
+    private final SimpleDateFormat secondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+    private final StringBuilder builder = new StringBuilder(23);
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedSecondText;
+
+    public String format(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = secondFormat.format(new Date(second * 1000L));
+        }
+
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        builder.setLength(0);
+        builder.append(cachedSecondText).append('.');
+        if (millis < 100) {
+            builder.append('0');
+        }
+        if (millis < 10) {
+            builder.append('0');
+        }
+        return builder.append(millis).toString();
+    }
+}
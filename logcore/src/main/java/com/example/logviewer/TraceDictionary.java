@@ -0,0 +1,51 @@
+package com.example.logviewer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Full stack traces by fingerprint. Senders attach a trace only the first time they send its
+ * fingerprint, so entries refer to traces here instead of carrying them. Bounded in both the
+ * number of traces and their length: past {@link #MAX_TRACES} the least recently used trace
+ * is evicted, and a sender asked for it again sends it with its next occurrence. Safe to use
+ * from any thread.
+ */
+public class TraceDictionary {
+    static final int MAX_TRACES = 4096;
+    static final int MAX_TRACE_CHARS = 64 * 1024;
+
+    private final Map<Long, String> traces = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > MAX_TRACES;
+        }
+    };
+
+    /**
+     * Keeps the trace unless one is already known for the fingerprint, which then counts as
+     * used.
+     */
+    public synchronized void put(long fingerprint, String trace) {
+        if (fingerprint == 0 || trace == null) {
+            return;
+        }
+        if (traces.get(fingerprint) != null) {
+            return;
+        }
+        if (trace.length() > MAX_TRACE_CHARS) {
+            trace = trace.substring(0, MAX_TRACE_CHARS) + "\n\t...";
+        }
+        traces.put(fingerprint, trace);
+    }
+
+    /**
+     * The trace for the fingerprint, or null if it never arrived or was evicted. Counts as a use.
+     */
+    public synchronized String get(long fingerprint) {
+        return traces.get(fingerprint);
+    }
+
+    public synchronized int size() {
+        return traces.size();
+    }
+}
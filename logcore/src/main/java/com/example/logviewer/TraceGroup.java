@@ -0,0 +1,77 @@
+package com.example.logviewer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The retained entries that logged the same stack trace, identified by its fingerprint.
+ */
+public class TraceGroup {
+    private final long fingerprint;
+    private long count;
+    private long lastTimestamp;
+    private long lastPosition;
+
+    TraceGroup(long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Groups the entries of the reader that carry a stack trace, most frequent first. Repeats
+     * folded into an entry count towards its group.
+     */
+    public static List<TraceGroup> collect(LogReader reader) {
+        Map<Long, TraceGroup> groups = new HashMap<>();
+        long end = reader.getEndPosition();
+        for (long position = reader.getStartPosition(); position < end; position++) {
+            long fingerprint = reader.getTraceFingerprint(position);
+            if (fingerprint == 0) {
+                continue;
+            }
+            int repeatCount = reader.getRepeatCount(position);
+            long lastTimestamp = reader.getLastTimestamp(position);
+            if (!reader.contains(position)) {
+                continue;
+            }
+            TraceGroup group = groups.get(fingerprint);
+            if (group == null) {
+                group = new TraceGroup(fingerprint);
+                groups.put(fingerprint, group);
+            }
+            group.count += repeatCount;
+            group.lastTimestamp = Math.max(group.lastTimestamp, lastTimestamp);
+            group.lastPosition = position;
+        }
+
+        List<TraceGroup> sorted = new ArrayList<>(groups.values());
+        Collections.sort(sorted, (a, b) -> a.count != b.count
+                ? Long.compare(b.count, a.count)
+                : Long.compare(b.lastTimestamp, a.lastTimestamp));
+        return sorted;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Occurrences in the retained window, including folded repeats.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Position of the most recent entry in the group.
+     */
+    public long getLastPosition() {
+        return lastPosition;
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.logviewer;
+
+import java.util.Arrays;
+
+/**
+ * Incrementally maintained substring index over message text.
+ *
+ * Every message is case-folded once at ingest and each of its trigrams adds the entry's
+ * position to a posting list. Trigrams are hashed into a fixed number of buckets; a collision
+ * only adds a false candidate, which the caller removes when it verifies the match against the
+ * message itself. Posting lists hold delta-encoded varints, so a typical posting costs one or
+ * two bytes. Only the first {@link #MAX_INDEXED_CHARS} chars of a message are indexed; longer
+ * messages are kept on a separate list and always returned as candidates. Evicted postings
+ * are dropped by a sweep that compacts a few buckets per eviction, so no single append pays for
+ * rewriting the whole index.
+ *
+ * Writes come from the store's writer; queries may come from any thread. A query only holds
+ * the lock while it takes a snapshot of the posting lists it needs and decodes and intersects
+ * them afterwards, so a broad query does not hold up ingestion. A list's bytes below its
+ * length are never rewritten in place (trimming and clearing switch to a new array), which
+ * keeps a snapshot valid after the lock is released.
+ */
+public class TrigramIndex {
+    public static final int MAX_INDEXED_CHARS = 512;
+    private static final int BUCKET_BITS = 16;
+    private static final int BUCKET_MASK = (1 << BUCKET_BITS) - 1;
+
+    private final PostingList[] buckets = new PostingList[1 << BUCKET_BITS];
+    private final PostingList longMessages = new PostingList();
+    private final long compactionInterval;
+    private long lastStartPosition;
+    // Buckets owed to the sweep, in units of 1 / compactionInterval
+    private long sweepCredit;
+    private int sweepCursor;
+    private long postingBytes;
+
+    /**
+     * @param compactionInterval over how many evicted positions one sweep through all posting
+     *                           lists is spread
+     */
+    public TrigramIndex(long compactionInterval) {
+        this.compactionInterval = Math.max(1, compactionInterval);
+    }
+
+    public static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    public static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Whether the text contains the folded query, folding the text char by char as it goes
+     * rather than copying it.
+     */
+    public static boolean containsFolded(CharSequence text, String foldedQuery) {
+        int queryLength = foldedQuery.length();
+        for (int i = 0; i + queryLength <= text.length(); i++) {
+            int j = 0;
+            while (j < queryLength && fold(text.charAt(i + j)) == foldedQuery.charAt(j)) {
+                j++;
+            }
+            if (j == queryLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(long position, CharSequence message, int length) {
+        int indexed = Math.min(length, MAX_INDEXED_CHARS);
+        if (length > MAX_INDEXED_CHARS) {
+            postingBytes += longMessages.add(position);
+        }
+        if (indexed < 3) {
+            return;
+        }
+
+        char c1 = fold(message.charAt(0));
+        char c2 = fold(message.charAt(1));
+        for (int i = 2; i < indexed; i++) {
+            char c3 = fold(message.charAt(i));
+            int bucket = bucket(c1, c2, c3);
+            PostingList list = buckets[bucket];
+            if (list == null) {
+                list = new PostingList();
+                buckets[bucket] = list;
+            }
+            // add() ignores a repeat of the position it saw last, so repeated trigrams are free
+            postingBytes += list.add(position);
+            c1 = c2;
+            c2 = c3;
+        }
+    }
+
+    /**
+     * Drops postings below the store's start position from the next few buckets of the sweep,
+     * as many as the evictions since the last call have earned.
+     */
+    public synchronized void onEvicted(long startPosition) {
+        long evicted = startPosition - lastStartPosition;
+        lastStartPosition = startPosition;
+        if (evicted <= 0) {
+            return;
+        }
+        long maxCredit = (long) buckets.length * compactionInterval;
+        sweepCredit = Math.min(maxCredit, sweepCredit + Math.min(evicted, compactionInterval) * buckets.length);
+        while (sweepCredit >= compactionInterval) {
+            sweepCredit -= compactionInterval;
+            PostingList list = buckets[sweepCursor];
+            if (list != null) {
+                postingBytes -= list.trimBelow(startPosition);
+            }
+            if (++sweepCursor == buckets.length) {
+                sweepCursor = 0;
+                postingBytes -= longMessages.trimBelow(startPosition);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(buckets, null);
+        longMessages.clear();
+        postingBytes = 0;
+    }
+
+    public synchronized long getPostingBytes() {
+        return postingBytes;
+    }
+
+    /**
+     * Positions in [from, to) whose message may contain the folded query, in ascending order.
+     * Returns null when the query is too short for the index to narrow anything down.
+     */
+    public PositionList candidates(String foldedQuery, long from, long to) {
+        int length = foldedQuery.length();
+        if (length < 3) {
+            return null;
+        }
+
+        Postings[] lists;
+        Postings longPostings = null;
+        synchronized (this) {
+            int[] queryBuckets = new int[Math.min(length, MAX_INDEXED_CHARS) - 2];
+            int count = 0;
+            for (int i = 0; i + 2 < length && count < queryBuckets.length; i++) {
+                int bucket = bucket(foldedQuery.charAt(i), foldedQuery.charAt(i + 1), foldedQuery.charAt(i + 2));
+                if (buckets[bucket] == null) {
+                    count = -1;
+                    break;
+                }
+                queryBuckets[count++] = bucket;
+            }
+
+            lists = new Postings[Math.max(count, 0)];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = buckets[queryBuckets[i]].snapshot();
+            }
+            if (longMessages.count > 0) {
+                longPostings = longMessages.snapshot();
+            }
+        }
+
+        PositionList result;
+        if (lists.length == 0) {
+            result = new PositionList();
+        } else {
+            // Start from the rarest trigram so every later intersection step stays small
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.count, b.count));
+            result = lists[0].decode(from, to);
+            for (int i = 1; i < lists.length && !result.isEmpty(); i++) {
+                if (lists[i].data != lists[i - 1].data) {
+                    result = lists[i].intersect(result);
+                }
+            }
+        }
+        if (longPostings != null) {
+            result = union(result, longPostings.decode(from, to));
+        }
+        return result;
+    }
+
+    private static PositionList union(PositionList a, PositionList b) {
+        if (b.isEmpty()) {
+            return a;
+        }
+        PositionList merged = new PositionList(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j >= b.size() || (i < a.size() && a.get(i) < b.get(j))) {
+                merged.add(a.get(i++));
+            } else if (i >= a.size() || b.get(j) < a.get(i)) {
+                merged.add(b.get(j++));
+            } else {
+                merged.add(a.get(i++));
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    private static int bucket(char c1, char c2, char c3) {
+        int hash = (c1 * 31 + c2) * 31 + c3;
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash & BUCKET_MASK;
+    }
+
+    private static final class PostingList {
+        byte[] data = new byte[8];
+        int length;
+        int count;
+        long last = -1;
+
+        /**
+         * Appends a position (ascending) and returns the number of bytes it took.
+         */
+        int add(long position) {
+            if (position == last) {
+                return 0;
+            }
+            long delta = count == 0 ? position : position - last;
+            int before = length;
+            writeVarint(delta);
+            last = position;
+            count++;
+            return length - before;
+        }
+
+        Postings snapshot() {
+            return new Postings(data, count);
+        }
+
+        /**
+         * Drops the positions below startPosition and returns the number of bytes freed.
+         */
+        int trimBelow(long startPosition) {
+            int before = length;
+            if (count == 0 || last < startPosition) {
+                clear();
+                return before;
+            }
+
+            // Skip the dropped varints; the deltas after the first kept position stay valid
+            int offset = 0;
+            long position = 0;
+            int dropped = 0;
+            while (true) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                position = dropped == 0 ? delta : position + delta;
+                if (position >= startPosition) {
+                    break;
+                }
+                dropped++;
+            }
+            if (dropped == 0) {
+                return 0;
+            }
+
+            byte[] old = data;
+            int rest = before - offset;
+            data = new byte[Math.max(8, 10 + rest)];
+            length = 0;
+            writeVarint(position);
+            System.arraycopy(old, offset, data, length, rest);
+            length += rest;
+            count -= dropped;
+            return before - length;
+        }
+
+        void clear() {
+            if (length > 0) {
+                // A new array, since snapshots may still be reading the old one
+                data = new byte[8];
+            }
+            length = 0;
+            count = 0;
+            last = -1;
+        }
+
+        private void writeVarint(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * The first count postings of a list, which stay unchanged once the lock is released.
+     */
+    private static final class Postings {
+        final byte[] data;
+        final int count;
+
+        Postings(byte[] data, int count) {
+            this.data = data;
+            this.count = count;
+        }
+
+        PositionList decode(long from, long to) {
+            PositionList result = new PositionList(Math.min(count, 1024));
+            int offset = 0;
+            long position = 0;
+            for (int i = 0; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                position = i == 0 ? delta : position + delta;
+                if (position >= to) {
+                    break;
+                }
+                if (position >= from) {
+                    result.add(position);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Positions of the (ascending) candidate list that also appear in this list.
+         */
+        PositionList intersect(PositionList candidates) {
+            PositionList result = new PositionList(Math.min(candidates.size(), 1024));
+            int offset = 0;
+            long position = 0;
+            int candidateIndex = 0;
+            for (int i = 0; i < count && candidateIndex < candidates.size(); i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                position = i == 0 ? delta : position + delta;
+
+                while (candidateIndex < candidates.size() && candidates.get(candidateIndex) < position) {
+                    candidateIndex++;
+                }
+                if (candidateIndex < candidates.size() && candidates.get(candidateIndex) == position) {
+                    result.add(position);
+                    candidateIndex++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class CsvWriterTest {
+    @Test
+    public void plainFieldsAreNotQuoted() throws IOException {
+        assertEquals("a,b c,,d\r\n", row("a", "b c", null, "d"));
+    }
+
+    @Test
+    public void fieldsWithSeparatorsAreQuoted() throws IOException {
+        assertEquals("\"a,b\",\"line\nbreak\",\"cr\r\"\r\n", row("a,b", "line\nbreak", "cr\r"));
+    }
+
+    @Test
+    public void embeddedQuotesAreDoubled() throws IOException {
+        assertEquals("\"say \"\"hi\"\"\",\"\"\"\"\r\n", row("say \"hi\"", "\""));
+    }
+
+    @Test
+    public void emptyFieldIsLeftEmpty() throws IOException {
+        assertEquals(",\r\n", row("", ""));
+    }
+
+    @Test
+    public void writesHeaderAndMatchingEntries() throws IOException {
+        LogStore store = new LogStore(100, 4096);
+        store.append(LogType.INFO, "Net", "connected, \"fast\"", 0, 0, "Net.java", 3);
+        store.append(LogType.ERROR, "Net", "timeout", 1, 1, null, 0);
+        store.append(LogType.INFO, "UI", "connected again", 2, 2, null, 0);
+        LogFilter filter = new LogFilter(new HashSet<>(Arrays.asList(LogType.values())), 0, "connected");
+
+        StringWriter writer = new StringWriter();
+        long rows = CsvWriter.write(store, filter, writer, () -> false, (scanned, total) -> { });
+
+        String[] lines = writer.toString().split("\r\n");
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertEquals("Timestamp,Type,Tag,File,Line,Repeats,Last Timestamp,Message", lines[0]);
+        assertTrue(lines[1].endsWith(",INFO,Net,Net.java,3,1,,\"connected, \"\"fast\"\"\""));
+        assertTrue(lines[2].endsWith(",INFO,UI,,0,1,,connected again"));
+    }
+
+    @Test
+    public void cancelledExportReturnsMinusOne() throws IOException {
+        LogStore store = new LogStore(100, 4096);
+        store.append(LogType.INFO, "Net", "connected", 0, 0, null, 0);
+        LogFilter filter = new LogFilter(new HashSet<>(Arrays.asList(LogType.values())), 0, "");
+
+        assertEquals(-1, CsvWriter.write(store, filter, new StringWriter(), () -> true, (scanned, total) -> { }));
+    }
+
+    private static String row(String... fields) throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvWriter.writeRow(writer, fields);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.logviewer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FacetIndexTest {
+    private static final String[] TAGS = {"Net", "Network", "Repo", "UI", "Db"};
+    private static final String[] QUERIES = {"", "level>=WARNING", "tag:Net*", "-tag:Net* level:ERROR",
+            "tag:Rare1*", "level:debug tag:ui", "level<INFO tag:Db m99"};
+
+    private static LogStore store;
+
+    // Spans several 2^16 chunks and evicts whole chunks and part of one
+    @BeforeClass
+    public static void fillStore() {
+        Random random = new Random(1);
+        store = new LogStore(150_000, 1 << 22);
+        for (int i = 0; i < 400_000; i++) {
+            LogType type = LogType.values()[random.nextInt(100) < 90 ? 1 : random.nextInt(5)];
+            String tag = random.nextInt(1000) == 0 ? "Rare" + random.nextInt(50) : TAGS[random.nextInt(TAGS.length)];
+            store.append(type, tag, "m" + i, i, 0, null, 0, null, 0);
+        }
+    }
+
+    @Test
+    public void filterMatchesScan() throws ParseException {
+        List<Set<LogType>> typeSets = Arrays.asList(new HashSet<>(Arrays.asList(LogType.values())),
+                EnumSet.of(LogType.ERROR, LogType.DEBUG), EnumSet.of(LogType.VERBOSE));
+        for (Set<LogType> types : typeSets) {
+            for (String query : QUERIES) {
+                for (long minTimestamp : new long[]{0, 300_000}) {
+                    LogFilter filter = new LogFilter(types, minTimestamp, LogQuery.parse(query), null);
+                    PositionList result = new PositionList();
+                    filter.filterRange(store, 0, store.getEndPosition(), result);
+                    PositionList scanned = scan(filter, store.getStartPosition(), store.getEndPosition());
+                    assertSame(types + " " + query + " " + minTimestamp, scanned, result);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectHonoursRangeWithinChunk() {
+        FacetIndex index = new FacetIndex();
+        for (long position = 0; position < 200; position++) {
+            index.add(position, (int) (position % 2), 0);
+        }
+        boolean[] levels = new boolean[LogType.values().length];
+        levels[1] = true;
+
+        PositionList result = new PositionList();
+        index.select(levels, null, 63, 130, result);
+        assertEquals(34, result.size());
+        assertEquals(63, result.get(0));
+        assertEquals(129, result.get(result.size() - 1));
+    }
+
+    @Test
+    public void denseChunkKeepsEveryPosition() {
+        // Past the sorted-array limit, so the chunk turns into a bitmap
+        FacetIndex index = new FacetIndex();
+        for (long position = 0; position < 10_000; position++) {
+            index.add(position, 0, 0);
+        }
+        boolean[] levels = new boolean[LogType.values().length];
+        levels[0] = true;
+        PositionList result = new PositionList();
+        index.select(levels, null, 0, 10_000, result);
+        assertEquals(10_000, result.size());
+        assertEquals(9_999, result.get(9_999));
+    }
+
+    private static PositionList scan(LogFilter filter, long from, long to) {
+        PositionList matches = new PositionList();
+        for (long position = from; position < to; position++) {
+            if (filter.matches(store, position)) {
+                matches.add(position);
+            }
+        }
+        return matches;
+    }
+
+    private static void assertSame(String message, PositionList expected, PositionList actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i), actual.get(i));
+        }
+    }
+}
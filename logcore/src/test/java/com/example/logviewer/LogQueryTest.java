@@ -0,0 +1,141 @@
+package com.example.logviewer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class LogQueryTest {
+    private LogStore store;
+    private long morning;
+    private long afternoon;
+
+    @Before
+    public void setUp() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.ROOT);
+        morning = format.parse("2024-03-01 09:00").getTime();
+        afternoon = format.parse("2024-03-01 15:00").getTime();
+
+        store = new LogStore(100, 4096);
+        store.append(LogType.ERROR, "Network", "Read timeout after 3000ms", morning, 0, "Client.java", 10);
+        store.append(LogType.INFO, "UI", "Screen shown", afternoon, 0, "Main.java", 20);
+        store.append(LogType.WARNING, "NetCache", "read \"stale\" entry", afternoon, 0, "Cache.java", 30);
+        store.append(LogType.DEBUG, "Repo", "loaded 3 rows", afternoon, 0, null, 0);
+    }
+
+    @Test
+    public void emptyQueryMatchesEverything() throws ParseException {
+        assertTrue(LogQuery.parse("  ").isEmpty());
+        assertTrue(LogQuery.parse(null).isEmpty());
+        assertMatches("", 0, 1, 2, 3);
+    }
+
+    @Test
+    public void wordsMatchMessageIgnoringCase() throws ParseException {
+        assertMatches("READ", 0, 2);
+        assertMatches("read timeout", 0);
+        assertMatches("\"read timeout\"", 0);
+        assertMatches("\"stale\"", 2);
+    }
+
+    @Test
+    public void levelComparesBySeverity() throws ParseException {
+        assertMatches("level>=WARNING", 0, 2);
+        assertMatches("level>info", 0, 2);
+        assertMatches("level<INFO", 3);
+        assertMatches("level<=info", 1, 3);
+        assertMatches("level:error", 0);
+        assertMatches("level=DEBUG", 3);
+    }
+
+    @Test
+    public void tagAndFileTakeGlobs() throws ParseException {
+        assertMatches("tag:Net*", 0, 2);
+        assertMatches("tag:net?ork", 0);
+        assertMatches("-tag:Net*", 1, 3);
+        assertMatches("file:*.java", 0, 1, 2);
+    }
+
+    @Test
+    public void regexMatchesMessage() throws ParseException {
+        assertMatches("msg~/\\d+ms/", 0);
+        assertMatches("msg~/^loaded/ level:debug", 3);
+        assertMatches("msg:rows", 3);
+    }
+
+    @Test
+    public void timeBoundsUseDateTimes() throws ParseException {
+        assertMatches("after:2024-03-01T12:00", 1, 2, 3);
+        assertMatches("before:2024-03-01T12:00", 0);
+    }
+
+    @Test
+    public void termsAreCombined() throws ParseException {
+        assertMatches("tag:Net* level>=ERROR timeout", 0);
+        assertMatches("tag:Net* -timeout", 2);
+    }
+
+    @Test
+    public void unknownKeyIsText() throws ParseException {
+        assertMatches("x:1");
+        assertMatches("3000ms", 0);
+    }
+
+    @Test
+    public void indexedTextIsLongestPositiveSubstring() throws ParseException {
+        assertEquals("timeout", LogQuery.parse("read timeout -shown level:ERROR").getIndexedText());
+        assertNull(LogQuery.parse("-timeout tag:Net*").getIndexedText());
+    }
+
+    @Test
+    public void facetOnlyQueries() throws ParseException {
+        assertTrue(LogQuery.parse("level>=WARNING tag:Net*").isFacetOnly());
+        assertFalse(LogQuery.parse("level>=WARNING timeout").isFacetOnly());
+        assertFalse(LogQuery.parse("file:*.java").isFacetOnly());
+    }
+
+    @Test
+    public void errorOffsetsPointAtTheTerm() {
+        assertErrorOffset("level:LOUD", 0);
+        assertErrorOffset("timeout -level:LOUD", 8);
+        assertErrorOffset("read level~/x/", 5);
+        assertErrorOffset("tag>Net", 0);
+        assertErrorOffset("a after:noon", 2);
+        assertErrorOffset("msg~/(/", 0);
+        assertErrorOffset("msg=x", 0);
+    }
+
+    @Test
+    public void errorOffsetsPointAtTheValue() {
+        assertErrorOffset("level:", 6);
+        assertErrorOffset("msg~timeout", 4);
+        assertErrorOffset("msg~/abc", 4);
+        assertErrorOffset("tag:\"Net", 4);
+        assertErrorOffset("find \"open", 5);
+    }
+
+    private void assertMatches(String query, long... expected) throws ParseException {
+        LogQuery compiled = LogQuery.parse(query);
+        int next = 0;
+        for (long position = store.getStartPosition(); position < store.getEndPosition(); position++) {
+            boolean expectedMatch = next < expected.length && expected[next] == position;
+            assertEquals(query + " at " + position, expectedMatch, compiled.matches(store, position));
+            if (expectedMatch) {
+                next++;
+            }
+        }
+    }
+
+    private static void assertErrorOffset(String query, int offset) {
+        try {
+            LogQuery.parse(query);
+            fail("Parsed " + query);
+        } catch (ParseException e) {
+            assertEquals(query, offset, e.getErrorOffset());
+        }
+    }
+}
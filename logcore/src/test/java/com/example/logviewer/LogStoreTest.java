@@ -0,0 +1,143 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogStoreTest {
+    @Test
+    public void evictsOldestEntriesWhenFull() {
+        LogStore store = new LogStore(3, 1024);
+        for (int i = 0; i < 5; i++) {
+            store.append(LogType.INFO, "tag", "message " + i, i, i, null, 0);
+        }
+
+        assertEquals(2, store.getStartPosition());
+        assertEquals(5, store.getEndPosition());
+        assertEquals(3, store.size());
+        assertFalse(store.contains(1));
+        assertEquals("message 2", store.getMessage(2));
+        assertEquals("message 4", store.getMessage(4));
+    }
+
+    @Test
+    public void evictsOldestEntriesWhenMessageBudgetIsExhausted() {
+        // 10 chars of message text
+        LogStore store = new LogStore(100, 20);
+        store.append(LogType.INFO, "tag", "aaaa", 0, 0, null, 0);
+        store.append(LogType.INFO, "tag", "bbbb", 1, 1, null, 0);
+        store.append(LogType.INFO, "tag", "cccc", 2, 2, null, 0);
+
+        assertEquals(1, store.getStartPosition());
+        // Written across the end of the arena
+        assertEquals("cccc", store.getMessage(2));
+        assertEquals(8, store.getMessageBytes() / 2);
+    }
+
+    @Test
+    public void getMessageReturnsNullForEvictedPosition() {
+        LogStore store = new LogStore(2, 1024);
+        for (int i = 0; i < 3; i++) {
+            store.append(LogType.INFO, "tag", "message " + i, i, i, null, 0);
+        }
+
+        assertNull(store.getMessage(0));
+        assertFalse(store.messageContains(0, "message"));
+    }
+
+    @Test
+    public void aggregatesFollowEviction() {
+        LogStore store = new LogStore(2, 1024);
+        store.append(LogType.ERROR, "tag", "a", 0, 0, null, 0);
+        store.append(LogType.INFO, "tag", "b", 1, 1, null, 0);
+        store.append(LogType.INFO, "tag", "c", 2, 2, null, 0);
+
+        long[] totals = new long[LogType.values().length];
+        store.getAggregates().getCountsSince(0, totals);
+        assertEquals(0, totals[LogType.ERROR.ordinal()]);
+        assertEquals(2, totals[LogType.INFO.ordinal()]);
+    }
+
+    @Test
+    public void aggregatesCountRepeatsUntilEvicted() {
+        LogStore store = new LogStore(2, 1024);
+        long position = store.append(LogType.ERROR, "tag", "a", 0, 0, null, 0);
+        store.addRepeats(position, 4, 900);
+
+        long[] totals = new long[LogType.values().length];
+        store.getAggregates().getCountsSince(0, totals);
+        assertEquals(5, totals[LogType.ERROR.ordinal()]);
+
+        store.append(LogType.INFO, "tag", "b", 1, 1, null, 0);
+        store.append(LogType.INFO, "tag", "c", 2, 2, null, 0);
+        store.getAggregates().getCountsSince(0, totals);
+        assertEquals(0, totals[LogType.ERROR.ordinal()]);
+    }
+
+    @Test
+    public void dictionariesReuseIdsOfEvictedValues() {
+        LogStore store = new LogStore(4, 1 << 16);
+        for (int i = 0; i < 1000; i++) {
+            store.append(LogType.INFO, "request-" + i, "m", i, i, "File" + i + ".java", i, "app:" + i, 0);
+        }
+
+        assertTrue(store.getTags().size() <= 5);
+        for (long position = store.getStartPosition(); position < store.getEndPosition(); position++) {
+            assertEquals("request-" + position, store.getTag(position));
+            assertEquals("File" + position + ".java", store.getFileName(position));
+            assertEquals("app:" + position, store.getSource(position));
+        }
+    }
+
+    @Test
+    public void sharedTagSurvivesEvictionOfOtherEntries() {
+        LogStore store = new LogStore(3, 1024);
+        store.append(LogType.INFO, "Net", "a", 0, 0, null, 0);
+        for (int i = 1; i < 10; i++) {
+            store.append(LogType.INFO, i % 2 == 0 ? "Net" : "UI" + i, "m", i, i, null, 0);
+        }
+
+        for (long position = store.getStartPosition(); position < store.getEndPosition(); position++) {
+            assertEquals(position % 2 == 0 ? "Net" : "UI" + position, store.getTag(position));
+        }
+    }
+
+    @Test
+    public void coalescesConsecutiveRepeats() {
+        LogStore store = new LogStore(10, 1024);
+        long position = store.append(LogType.WARNING, "tag", "retrying", 1000, 0, "Repo.java", 12, "app:1", 1);
+
+        assertTrue(store.coalesce(LogType.WARNING, "tag", "retrying", "Repo.java", 12, "app:1", 2, 0, 1, 1500, 1000));
+        assertTrue(store.coalesce(LogType.WARNING, "tag", "retrying", "Repo.java", 12, "app:1", 3, 0, 2, 1800, 1000));
+
+        assertEquals(1, store.size());
+        assertEquals(4, store.getRepeatCount(position));
+        assertEquals(1800, store.getLastTimestamp(position));
+        assertEquals(1000, store.getTimestamp(position));
+    }
+
+    @Test
+    public void doesNotCoalesceDifferentEntries() {
+        LogStore store = new LogStore(10, 1024);
+        long position = store.append(LogType.WARNING, "tag", "retrying", 1000, 0, "Repo.java", 12, "app:1", 1);
+
+        // Sequence gap, other message, other level, other line, outside the window
+        assertFalse(store.coalesce(LogType.WARNING, "tag", "retrying", "Repo.java", 12, "app:1", 3, 0, 1, 1100, 1000));
+        assertFalse(store.coalesce(LogType.WARNING, "tag", "retried", "Repo.java", 12, "app:1", 2, 0, 1, 1100, 1000));
+        assertFalse(store.coalesce(LogType.ERROR, "tag", "retrying", "Repo.java", 12, "app:1", 2, 0, 1, 1100, 1000));
+        assertFalse(store.coalesce(LogType.WARNING, "tag", "retrying", "Repo.java", 13, "app:1", 2, 0, 1, 1100, 1000));
+        assertFalse(store.coalesce(LogType.WARNING, "tag", "retrying", "Repo.java", 12, "app:1", 2, 0, 1, 2001, 1000));
+
+        assertEquals(1, store.getRepeatCount(position));
+        assertEquals(1000, store.getLastTimestamp(position));
+    }
+
+    @Test
+    public void doesNotCoalesceIntoEmptyStore() {
+        LogStore store = new LogStore(10, 1024);
+        store.append(LogType.INFO, "tag", "message", 0, 0, null, 0);
+        store.clear();
+
+        assertFalse(store.coalesce(LogType.INFO, "tag", "message", null, 0, null, 0, 0, 1, 1, 1000));
+    }
+}
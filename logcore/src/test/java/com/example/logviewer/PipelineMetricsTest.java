@@ -0,0 +1,33 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+    @Test
+    public void senderStatsAreKeptPerSource() {
+        PipelineMetrics metrics = new PipelineMetrics(new LogStore(100, 1 << 16));
+        metrics.onSenderStats("app:1", 100, 5, 10);
+        metrics.onSenderStats("app:2", 40, 0, 2);
+        // A later batch of one source replaces only its own report
+        metrics.onSenderStats("app:1", 120, 6, 3);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(160, snapshot.senderEmitted);
+        assertEquals(6, snapshot.senderDropped);
+        assertEquals(5, snapshot.senderQueueDepth);
+        assertEquals(2, snapshot.senders.size());
+        assertEquals(120, snapshot.senders.get("app:1").emitted);
+        assertEquals(40, snapshot.senders.get("app:2").emitted);
+        assertTrue(snapshot.toJson().contains("\"app:2\": {\"emitted\": 40, \"dropped\": 0, \"queueDepth\": 2}"));
+    }
+
+    @Test
+    public void noSenderReportsMinusOne() {
+        PipelineMetrics.Snapshot snapshot = new PipelineMetrics(new LogStore(100, 1 << 16)).snapshot();
+        assertEquals(-1, snapshot.senderEmitted);
+        assertEquals(-1, snapshot.senderQueueDepth);
+        assertTrue(snapshot.senders.isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PositionDiffTest {
+    @Test
+    public void reportsRangesFrontToBack() {
+        List<String> operations = new ArrayList<>();
+        PositionDiff.dispatch(list(1, 2, 3, 7, 8), list(3, 4, 5, 8, 9), new PositionDiff.Callback() {
+            @Override
+            public void onRemoved(int index, int count) {
+                operations.add("-" + index + "x" + count);
+            }
+
+            @Override
+            public void onInserted(int index, int count) {
+                operations.add("+" + index + "x" + count);
+            }
+        });
+
+        assertEquals(Arrays.asList("-0x2", "+1x2", "-3x1", "+4x1"), operations);
+    }
+
+    @Test
+    public void applyingTheScriptTurnsOldIntoNew() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            PositionList oldList = randomList(random);
+            PositionList newList = randomList(random);
+            List<Long> applied = toList(oldList);
+            PositionDiff.dispatch(oldList, newList, new PositionDiff.Callback() {
+                @Override
+                public void onRemoved(int index, int count) {
+                    applied.subList(index, index + count).clear();
+                }
+
+                @Override
+                public void onInserted(int index, int count) {
+                    // Indices are in the list as already updated, so they line up with newList
+                    for (int i = 0; i < count; i++) {
+                        applied.add(index + i, newList.get(index + i));
+                    }
+                }
+            });
+
+            assertEquals(toList(newList), applied);
+        }
+    }
+
+    @Test
+    public void identicalListsProduceNoOperations() {
+        PositionDiff.dispatch(list(1, 5, 9), list(1, 5, 9), new PositionDiff.Callback() {
+            @Override
+            public void onRemoved(int index, int count) {
+                fail();
+            }
+
+            @Override
+            public void onInserted(int index, int count) {
+                fail();
+            }
+        });
+    }
+
+    private static PositionList randomList(Random random) {
+        PositionList list = new PositionList();
+        for (long position = 0; position < 60; position++) {
+            if (random.nextInt(3) == 0) {
+                list.add(position);
+            }
+        }
+        return list;
+    }
+
+    private static PositionList list(long... positions) {
+        PositionList list = new PositionList();
+        for (long position : positions) {
+            list.add(position);
+        }
+        return list;
+    }
+
+    private static List<Long> toList(PositionList positions) {
+        List<Long> list = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            list.add(positions.get(i));
+        }
+        return list;
+    }
+}
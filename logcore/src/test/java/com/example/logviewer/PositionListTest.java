@@ -0,0 +1,81 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PositionListTest {
+    @Test
+    public void removeFirstKeepsTheRest() {
+        PositionList list = new PositionList(4);
+        for (long position = 10; position < 20; position++) {
+            list.add(position);
+        }
+        list.removeFirst(list.lowerBound(13));
+
+        assertEquals(7, list.size());
+        assertEquals(13, list.get(0));
+        assertEquals(19, list.get(6));
+        assertEquals(2, list.lowerBound(15));
+        assertEquals(7, list.lowerBound(100));
+    }
+
+    @Test
+    public void slidingWindowStaysInOrder() {
+        // Eviction at the front and appends at the back, as a live view sees them
+        PositionList list = new PositionList(8);
+        long next = 0;
+        for (int round = 0; round < 10_000; round++) {
+            list.add(next++);
+            list.add(next++);
+            list.removeFirst(2);
+            if (list.size() < 100) {
+                list.add(next++);
+            }
+        }
+
+        assertEquals(100, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(next - 100 + i, list.get(i));
+        }
+    }
+
+    @Test
+    public void removingEverythingEmptiesTheList() {
+        PositionList list = new PositionList();
+        list.add(1);
+        list.add(2);
+        list.removeFirst(5);
+        assertTrue(list.isEmpty());
+        list.add(3);
+        assertEquals(3, list.get(0));
+    }
+
+    @Test
+    public void copiesStartAtTheHead() {
+        PositionList source = new PositionList();
+        for (long position = 0; position < 6; position++) {
+            source.add(position);
+        }
+        source.removeFirst(4);
+
+        PositionList appended = new PositionList();
+        appended.add(-1);
+        appended.addAll(source);
+        assertEquals(3, appended.size());
+        assertEquals(4, appended.get(1));
+
+        PositionList replaced = new PositionList();
+        replaced.setAll(source);
+        assertEquals(2, replaced.size());
+        assertEquals(5, replaced.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastTheEndThrows() {
+        PositionList list = new PositionList();
+        list.add(1);
+        list.removeFirst(1);
+        list.get(0);
+    }
+}
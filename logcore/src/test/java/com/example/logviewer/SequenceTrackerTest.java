@@ -0,0 +1,110 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SequenceTrackerTest {
+    private static final long GRACE = 1000;
+
+    private final List<String> lost = new ArrayList<>();
+    private final SequenceTracker.LossListener listener =
+            (source, first, last, timestamp) -> lost.add(source + ":" + first + "-" + last + "@" + timestamp);
+    private final SequenceTracker tracker = new SequenceTracker(GRACE);
+
+    @Test
+    public void consecutiveEntriesAreInOrder() {
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            assertTrue(tracker.onReceived("app", sequence, 0, 0, listener));
+        }
+        assertEquals(-1, tracker.expire(10 * GRACE, listener));
+        assertTrue(lost.isEmpty());
+        assertEquals(0, tracker.getReorderedCount());
+    }
+
+    @Test
+    public void gapIsReportedAfterGracePeriod() {
+        tracker.onReceived("app", 1, 10, 0, listener);
+        tracker.onReceived("app", 5, 50, 100, listener);
+
+        assertEquals(GRACE - 400, tracker.expire(500, listener));
+        assertTrue(lost.isEmpty());
+        assertEquals(-1, tracker.expire(100 + GRACE, listener));
+        assertEquals(Arrays.asList("app:2-4@50"), lost);
+        assertEquals(3, tracker.getLostCount());
+    }
+
+    @Test
+    public void lateEntriesCloseTheirGap() {
+        tracker.onReceived("app", 1, 0, 0, listener);
+        tracker.onReceived("app", 6, 0, 0, listener);
+
+        assertFalse(tracker.onReceived("app", 3, 0, 0, listener));
+        assertFalse(tracker.onReceived("app", 2, 0, 0, listener));
+        tracker.expire(2 * GRACE, listener);
+
+        // 4 and 5 never came
+        assertEquals(Arrays.asList("app:4-5@0"), lost);
+        assertEquals(2, tracker.getReorderedCount());
+    }
+
+    @Test
+    public void coalescedRangeFillsGap() {
+        tracker.onReceived("app", 1, 0, 0, listener);
+        tracker.onReceived("app", 10, 0, 0, listener);
+
+        assertFalse(tracker.onReceived("app", 2, 9, 0, 0, listener));
+        tracker.expire(2 * GRACE, listener);
+        assertTrue(lost.isEmpty());
+    }
+
+    @Test
+    public void overtakenFirstBatchIsReordered() {
+        tracker.onReceived("app", 3, 5, 0, 0, listener);
+        assertFalse(tracker.onReceived("app", 1, 2, 0, 0, listener));
+        assertTrue(tracker.onReceived("app", 6, 0, 0, listener));
+
+        tracker.expire(2 * GRACE, listener);
+        assertTrue(lost.isEmpty());
+        assertEquals(1, tracker.getReorderedCount());
+    }
+
+    @Test
+    public void restartWithoutSessionNeedsSequenceOneSeenBefore() {
+        tracker.onReceived("app", 1, 0, 0, listener);
+        tracker.onReceived("app", 2, 0, 0, listener);
+        tracker.onReceived("app", 5, 0, 0, listener);
+
+        // Starts over: the open gap is reported right away
+        assertTrue(tracker.onReceived("app", 1, 0, 0, listener));
+        assertEquals(Arrays.asList("app:3-4@0"), lost);
+        assertTrue(tracker.onReceived("app", 2, 0, 0, listener));
+    }
+
+    @Test
+    public void newSessionIsARestart() {
+        tracker.onReceived("app", 7, 1, 1, 0, 0, listener);
+        tracker.onReceived("app", 7, 3, 3, 0, 0, listener);
+
+        // The new session's first batch was overtaken by its second
+        assertTrue(tracker.onReceived("app", 8, 4, 4, 0, 0, listener));
+        assertEquals(Arrays.asList("app:2-2@0"), lost);
+        assertFalse(tracker.onReceived("app", 8, 1, 3, 0, 0, listener));
+
+        tracker.expire(2 * GRACE, listener);
+        assertEquals(1, lost.size());
+    }
+
+    @Test
+    public void sourcesAreTrackedSeparately() {
+        tracker.onReceived("a", 1, 0, 0, listener);
+        tracker.onReceived("b", 1, 0, 0, listener);
+        assertTrue(tracker.onReceived("a", 2, 0, 0, listener));
+        assertTrue(tracker.onReceived("b", 2, 0, 0, listener));
+        assertTrue(tracker.onReceived(null, 1, 0, 0, listener));
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.logviewer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class SnapshotReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsCurrentVersion() throws IOException {
+        LogStore store = new LogStore(10_000, 1 << 20);
+        store.getTraces().put(42, "java.lang.IllegalStateException\n\tat Repo.load(Repo.java:7)");
+        // More than one block
+        int count = SnapshotFormat.DEFAULT_BLOCK_SIZE + 100;
+        for (int i = 0; i < count; i++) {
+            store.append(LogType.values()[i % LogType.values().length], "tag" + (i % 3), "message \u00E9 " + i,
+                    1000 + i, 5000 + i, i % 2 == 0 ? "Repo.java" : null, i, "app:" + (i % 2), i + 1,
+                    i == 7 ? 42 : 0);
+        }
+        long repeated = store.append(LogType.WARNING, "tag", "again", 9000, 0, null, 0, null, 0);
+        store.addRepeats(repeated, 2, 9500);
+
+        File file = folder.newFile("capture.orslog");
+        assertEquals(count + 1, SnapshotWriter.write(store, file));
+
+        SnapshotReader reader = SnapshotReader.open(file);
+        assertEquals(count + 1, reader.getEndPosition());
+        for (long position = 0; position < count; position += 997) {
+            assertEntry(store, position, reader, position);
+        }
+        assertEntry(store, count - 1, reader, count - 1);
+        assertEquals(3, reader.getRepeatCount(count));
+        assertEquals(9500, reader.getLastTimestamp(count));
+        assertEquals(42, reader.getTraceFingerprint(7));
+        assertEquals(store.getTrace(42), reader.getTrace(42));
+    }
+
+    @Test
+    public void readsFileWrittenToSpec() throws IOException {
+        SnapshotReader reader = SnapshotReader.open(writeByHand());
+        assertEquals(2, reader.getEndPosition());
+        assertEquals(LogType.INFO, reader.getType(0));
+        assertEquals("Net", reader.getTag(0));
+        assertEquals("connected", reader.getMessage(0));
+        assertEquals(1000, reader.getTimestamp(0));
+        assertEquals("Net.java", reader.getFileName(0));
+        assertEquals(12, reader.getLineNumber(0));
+        assertEquals(LogType.ERROR, reader.getType(1));
+        assertNull(reader.getFileName(1));
+        assertEquals("timeout \u00E9", reader.getMessage(1));
+        assertEquals(2000, reader.getTimestamp(1));
+        assertEquals(77, reader.getNanos(1));
+        assertEquals("app:9", reader.getSource(1));
+        assertEquals(11, reader.getSequence(1));
+        assertEquals(4, reader.getRepeatCount(1));
+        assertEquals(2500, reader.getLastTimestamp(1));
+        assertEquals(42, reader.getTraceFingerprint(1));
+        assertEquals("trace", reader.getTrace(42));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownVersion() throws IOException {
+        File file = writeByHand();
+        patchInt(file, 8, SnapshotFormat.VERSION + 1);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsEntryCountBeyondBlocks() throws IOException {
+        File file = writeByHand();
+        patchLong(file, 16, 3);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBlockCountsThatDoNotAddUp() throws IOException {
+        File file = writeByHand();
+        patchInt(file, indexOffset(file) + 8, 1);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsDictionaryCountPastFile() throws IOException {
+        File file = writeByHand();
+        patchInt(file, dictionaryOffset(file), Integer.MAX_VALUE);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTraceLengthPastFile() throws IOException {
+        File file = writeByHand();
+        patchInt(file, tracesOffset(file) + 4 + 8, 1 << 20);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMessageOffsetPastBlock() throws IOException {
+        File file = writeByHand();
+        patchInt(file, SnapshotFormat.HEADER_SIZE + SnapshotFormat.messageOffsetsOffset(2) + 8, 1 << 20);
+        SnapshotReader.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownLevel() throws IOException {
+        File file = writeByHand();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(SnapshotFormat.HEADER_SIZE + SnapshotFormat.levelsOffset(2));
+            out.write(LogType.values().length);
+        }
+        SnapshotReader.open(file);
+    }
+
+    @Test
+    public void buildsAggregatesFromColumns() throws IOException {
+        SnapshotReader reader = SnapshotReader.open(writeByHand());
+        long[] counts = new long[LogType.values().length];
+        reader.getAggregates().getCountsSince(0, counts);
+        assertEquals(1, counts[LogType.INFO.ordinal()]);
+        assertEquals(4, counts[LogType.ERROR.ordinal()]);
+    }
+
+    private static void assertEntry(LogReader expected, long expectedPosition, LogReader actual, long position) {
+        assertEquals(expected.getType(expectedPosition), actual.getType(position));
+        assertEquals(expected.getTag(expectedPosition), actual.getTag(position));
+        assertEquals(expected.getMessage(expectedPosition), actual.getMessage(position));
+        assertEquals(expected.getTimestamp(expectedPosition), actual.getTimestamp(position));
+        assertEquals(expected.getNanos(expectedPosition), actual.getNanos(position));
+        assertEquals(expected.getFileName(expectedPosition), actual.getFileName(position));
+        assertEquals(expected.getLineNumber(expectedPosition), actual.getLineNumber(position));
+        assertEquals(expected.getSource(expectedPosition), actual.getSource(position));
+        assertEquals(expected.getSequence(expectedPosition), actual.getSequence(position));
+        assertEquals(expected.getRepeatCount(expectedPosition), actual.getRepeatCount(position));
+        assertEquals(expected.getTraceFingerprint(expectedPosition), actual.getTraceFingerprint(position));
+    }
+
+    // One block of two entries and one trace, laid out as described in SnapshotFormat
+    private File writeByHand() throws IOException {
+        LogType[] types = {LogType.INFO, LogType.ERROR};
+        long[] timestamps = {1000, 2000};
+        long[] nanos = {66, 77};
+        String[] dictionary = {"Net", "Net.java", null, "app:9"};
+        int[] tagIds = {0, 0};
+        int[] fileIds = {1, 2};
+        int[] lineNumbers = {12, 0};
+        int[] sourceIds = {3, 3};
+        long[] sequences = {10, 11};
+        int[] repeatCounts = {1, 4};
+        long[] lastTimestamps = {1000, 2500};
+        long[] traceFingerprints = {0, 42};
+        byte[][] messages = {"connected".getBytes(StandardCharsets.UTF_8),
+                "timeout \u00E9".getBytes(StandardCharsets.UTF_8)};
+        byte[] trace = "trace".getBytes(StandardCharsets.UTF_8);
+        int count = types.length;
+
+        File file = folder.newFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            long blockOffset = SnapshotFormat.HEADER_SIZE;
+            long messageBytes = messages[0].length + messages[1].length;
+            long dictionaryOffset = blockOffset + SnapshotFormat.messageDataOffset(count) + messageBytes;
+            long dictionarySize = 4;
+            for (String value : dictionary) {
+                dictionarySize += 4 + (value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0);
+            }
+            long indexOffset = dictionaryOffset + dictionarySize;
+
+            out.write(SnapshotFormat.MAGIC);
+            out.writeInt(SnapshotFormat.VERSION);
+            out.writeInt(SnapshotFormat.DEFAULT_BLOCK_SIZE);
+            out.writeLong(count);
+            out.writeInt(1);
+            out.writeLong(dictionaryOffset);
+            out.writeLong(indexOffset);
+            out.writeLong(indexOffset + SnapshotFormat.INDEX_ENTRY_SIZE);
+            out.write(new byte[SnapshotFormat.HEADER_SIZE - out.size()]);
+
+            for (long timestamp : timestamps) {
+                out.writeLong(timestamp);
+            }
+            for (long value : nanos) {
+                out.writeLong(value);
+            }
+            for (LogType type : types) {
+                out.write(type.ordinal());
+            }
+            out.write(new byte[((count + 3) & ~3) - count]);
+            for (int id : tagIds) {
+                out.writeInt(id);
+            }
+            for (int id : fileIds) {
+                out.writeInt(id);
+            }
+            for (int line : lineNumbers) {
+                out.writeInt(line);
+            }
+            for (int id : sourceIds) {
+                out.writeInt(id);
+            }
+            for (long sequence : sequences) {
+                out.writeLong(sequence);
+            }
+            for (int repeatCount : repeatCounts) {
+                out.writeInt(repeatCount);
+            }
+            for (long lastTimestamp : lastTimestamps) {
+                out.writeLong(lastTimestamp);
+            }
+            for (long fingerprint : traceFingerprints) {
+                out.writeLong(fingerprint);
+            }
+            out.writeInt(0);
+            out.writeInt(messages[0].length);
+            out.writeInt((int) messageBytes);
+            for (byte[] message : messages) {
+                out.write(message);
+            }
+
+            out.writeInt(dictionary.length);
+            for (String value : dictionary) {
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+
+            out.writeLong(blockOffset);
+            out.writeInt(count);
+            out.writeLong(timestamps[0]);
+            out.writeLong(timestamps[1]);
+
+            out.writeInt(1);
+            out.writeLong(traceFingerprints[1]);
+            out.writeInt(trace.length);
+            out.write(trace);
+        }
+        return file;
+    }
+
+    private static long dictionaryOffset(File file) throws IOException {
+        return readLong(file, 28);
+    }
+
+    private static long indexOffset(File file) throws IOException {
+        return readLong(file, 36);
+    }
+
+    private static long tracesOffset(File file) throws IOException {
+        return readLong(file, 44);
+    }
+
+    private static long readLong(File file, long offset) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(offset);
+            return in.readLong();
+        }
+    }
+
+    private static void patchInt(File file, long offset, int value) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(offset);
+            out.writeInt(value);
+        }
+    }
+
+    private static void patchLong(File file, long offset, long value) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(offset);
+            out.writeLong(value);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SourceMergerTest {
+    private final List<String> released = new ArrayList<>();
+    private final SourceMerger.Sink<String> sink = released::add;
+
+    @Test
+    public void singleSourceIsReleasedRightAway() {
+        SourceMerger<String> merger = new SourceMerger<>(1000, 100);
+        merger.add("a", 10, 10, "a1");
+        assertEquals(-1, merger.release(10, sink));
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void mergesSourcesByEmitTimeOnceWindowPasses() {
+        SourceMerger<String> merger = new SourceMerger<>(1000, 100);
+        merger.add("a", 100, 100, "a1");
+        merger.add("a", 300, 300, "a2");
+        merger.add("b", 200, 400, "b1");
+
+        assertEquals(700, merger.release(400, sink));
+        assertTrue(released.isEmpty());
+        merger.release(1250, sink);
+        assertEquals(Arrays.asList("a1", "b1"), released);
+        assertEquals(1, merger.getPendingCount());
+    }
+
+    @Test
+    public void keepsOrderWhileQueueGrows() {
+        SourceMerger<String> merger = new SourceMerger<>(1_000_000, 1000);
+        // Several laps of the key ring, with removals in between so it wraps before growing
+        for (int i = 0; i < 10; i++) {
+            merger.add("a", i, i, "a" + i);
+            merger.add("b", i, i, "b" + i);
+        }
+        merger.release(1_000_005, sink);
+        for (int i = 10; i < 100; i++) {
+            merger.add("a", i, i, "a" + i);
+            merger.add("b", i, i, "b" + i);
+        }
+        merger.flush(sink);
+
+        assertEquals(200, released.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("a" + i, released.get(2 * i));
+            assertEquals("b" + i, released.get(2 * i + 1));
+        }
+        assertEquals(0, merger.getPendingCount());
+    }
+
+    @Test
+    public void releasesOldestPastMaxPending() {
+        SourceMerger<String> merger = new SourceMerger<>(1000, 2);
+        merger.add("a", 10, 10, "a1");
+        merger.add("b", 20, 20, "b1");
+        merger.add("a", 30, 30, "a2");
+        merger.release(30, sink);
+        assertEquals(1, released.size());
+        assertEquals("a1", released.get(0));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TraceDictionaryTest {
+    @Test
+    public void keepsFirstTraceForFingerprint() {
+        TraceDictionary traces = new TraceDictionary();
+        traces.put(1, "first");
+        traces.put(1, "second");
+        traces.put(0, "no fingerprint");
+        assertEquals("first", traces.get(1));
+        assertEquals(1, traces.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenFull() {
+        TraceDictionary traces = new TraceDictionary();
+        for (long fingerprint = 1; fingerprint <= TraceDictionary.MAX_TRACES; fingerprint++) {
+            traces.put(fingerprint, "trace " + fingerprint);
+        }
+        // A fingerprint that keeps occurring stays
+        assertNotNull(traces.get(1));
+        traces.put(TraceDictionary.MAX_TRACES + 1, "new");
+
+        assertEquals(TraceDictionary.MAX_TRACES, traces.size());
+        assertEquals("new", traces.get(TraceDictionary.MAX_TRACES + 1));
+        assertEquals("trace 1", traces.get(1));
+        assertNull(traces.get(2));
+    }
+
+    @Test
+    public void truncatesLongTraces() {
+        TraceDictionary traces = new TraceDictionary();
+        StringBuilder trace = new StringBuilder();
+        while (trace.length() <= TraceDictionary.MAX_TRACE_CHARS) {
+            trace.append("\tat Repo.load(Repo.java:7)\n");
+        }
+        traces.put(1, trace.toString());
+        assertTrue(traces.get(1).length() < trace.length());
+        assertTrue(traces.get(1).endsWith("..."));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.logviewer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "network", "timeout", "Error", "conn"};
+
+    @Test
+    public void candidatesCoverEveryMatchAfterEviction() {
+        Random random = new Random(1);
+        LogStore store = new LogStore(5000, 5000 * 80);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int words = 1 + random.nextInt(5); words > 0; words--) {
+                message.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(50)).append(' ');
+            }
+            if (random.nextInt(200) == 0) {
+                // Past MAX_INDEXED_CHARS, so only found through the long-message list
+                for (int j = 0; j < 50; j++) {
+                    message.append("padding ");
+                }
+                message.append("tailword");
+            }
+            store.append(LogType.INFO, "tag", message.toString(), i, i, null, 0);
+
+            if (i % 9973 == 0) {
+                for (String query : new String[]{"network1", "TIMEOUT", "eta3", "conn4 ", "tailword"}) {
+                    assertCandidatesCoverScan(store, TrigramIndex.fold(query));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shortQueryIsNotNarrowed() {
+        TrigramIndex index = new TrigramIndex(10);
+        index.add(0, "abc", 3);
+        assertNull(index.candidates("ab", 0, 1));
+    }
+
+    @Test
+    public void candidatesAreLimitedToRange() {
+        TrigramIndex index = new TrigramIndex(10);
+        for (int i = 0; i < 10; i++) {
+            index.add(i, "timeout " + i, 9);
+        }
+
+        PositionList candidates = index.candidates("timeout", 3, 6);
+        assertEquals(3, candidates.size());
+        assertEquals(3, candidates.get(0));
+        assertEquals(5, candidates.get(2));
+    }
+
+    @Test
+    public void missingTrigramYieldsNoCandidates() {
+        TrigramIndex index = new TrigramIndex(10);
+        index.add(0, "timeout", 7);
+        assertTrue(index.candidates("xyz", 0, 1).isEmpty());
+    }
+
+    @Test
+    public void queriesRacingWithIngestSeeConsistentLists() throws InterruptedException {
+        TrigramIndex index = new TrigramIndex(100);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                index.add(i, i % 3 == 0 ? "read timeout" : "connected", i % 3 == 0 ? 12 : 9);
+                index.onEvicted(Math.max(0, i - 1000));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            PositionList candidates = index.candidates("timeout", 0, Long.MAX_VALUE);
+            for (int i = 0; i < candidates.size(); i++) {
+                assertEquals(0, candidates.get(i) % 3);
+                assertTrue(i == 0 || candidates.get(i - 1) < candidates.get(i));
+            }
+        }
+        writer.join();
+    }
+
+    @Test
+    public void containsFoldedIgnoresCase() {
+        assertTrue(TrigramIndex.containsFolded("Read TIMEOUT after", "timeout"));
+        assertTrue(TrigramIndex.containsFolded("abc", ""));
+        assertFalse(TrigramIndex.containsFolded("time out", "timeout"));
+        assertFalse(TrigramIndex.containsFolded("tim", "timeout"));
+    }
+
+    private static void assertCandidatesCoverScan(LogStore store, String foldedQuery) {
+        long start = store.getStartPosition();
+        long end = store.getEndPosition();
+        PositionList candidates = store.searchCandidates(foldedQuery, start, end);
+        for (int i = 1; i < candidates.size(); i++) {
+            assertTrue(candidates.get(i - 1) < candidates.get(i));
+        }
+        int next = 0;
+        for (long position = start; position < end; position++) {
+            if (!store.messageContains(position, foldedQuery)) {
+                continue;
+            }
+            while (next < candidates.size() && candidates.get(next) < position) {
+                next++;
+            }
+            assertTrue("missing " + position + " for " + foldedQuery,
+                    next < candidates.size() && candidates.get(next) == position);
+        }
+    }
+}
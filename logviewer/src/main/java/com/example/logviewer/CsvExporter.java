@@ -0,0 +1,108 @@
+package com.example.logviewer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs {@link CsvWriter} exports on a worker thread, through a buffered and optionally
+ * gzip-compressed file writer. Listener callbacks arrive on the main thread.
+ */
+public class CsvExporter {
+    public interface Listener {
+        void onProgress(long scanned, long total);
+
+        void onFinished(File file, long rows);
+
+        void onFailed(File file, IOException error);
+
+        void onCancelled(File file);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 200;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Starts exporting the entries of the store that match the filter as of now. A running
+     * export is cancelled first.
+     */
+    public void export(LogReader reader, LogFilter filter, File file, boolean gzip, Listener listener) {
+        long exportGeneration = generation.incrementAndGet();
+        worker.execute(() -> run(exportGeneration, reader, filter, file, gzip, listener));
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void run(long exportGeneration, LogReader reader, LogFilter filter, File file,
+                     boolean gzip, Listener listener) {
+        long rows;
+        IOException error = null;
+        long[] lastProgress = {0};
+        try (Writer writer = open(file, gzip)) {
+            rows = CsvWriter.write(reader, filter, writer,
+                    () -> generation.get() != exportGeneration,
+                    (scanned, total) -> {
+                        long now = System.currentTimeMillis();
+                        if (now - lastProgress[0] >= PROGRESS_INTERVAL_MS) {
+                            lastProgress[0] = now;
+                            post(exportGeneration, () -> listener.onProgress(scanned, total));
+                        }
+                    });
+        } catch (IOException e) {
+            rows = -1;
+            error = e;
+        }
+
+        if (rows < 0) {
+            file.delete();
+        }
+        if (error != null) {
+            IOException failure = error;
+            mainHandler.post(() -> listener.onFailed(file, failure));
+        } else if (rows < 0) {
+            mainHandler.post(() -> listener.onCancelled(file));
+        } else {
+            long written = rows;
+            mainHandler.post(() -> listener.onFinished(file, written));
+        }
+    }
+
+    private void post(long exportGeneration, Runnable callback) {
+        mainHandler.post(() -> {
+            if (generation.get() == exportGeneration) {
+                callback.run();
+            }
+        });
+    }
+
+    private static Writer open(File file, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
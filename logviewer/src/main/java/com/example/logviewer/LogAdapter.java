@@ -1,6 +1,10 @@
 package com.example.logviewer;
 
 import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,11 +14,15 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.charts.BarChart;
+import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.components.YAxis;
 import com.github.mikephil.charting.data.BarData;
 import com.github.mikephil.charting.data.BarDataSet;
 import com.github.mikephil.charting.data.BarEntry;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
@@ -22,13 +30,33 @@ import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 import com.github.mikephil.charting.utils.ColorTemplate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
-    private List<LogEntry> logs;
+public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements PositionDiff.Callback {
+    public interface OnEntryClickListener {
+        void onEntryClick(long position);
+    }
+
+    private LogReader reader;
+    private final PositionList positions;
     private VisualizationType visualizationType = VisualizationType.PLAIN_TEXT;
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter();
+    // Display text of recently bound rows, keyed by store position, so scrolling back is cheap
+    private static final int DISPLAY_CACHE_SIZE = 256;
+    private final LruCache<Long, String> displayCache = new LruCache<>(DISPLAY_CACHE_SIZE);
+    private PipelineMetrics metrics;
+    private OnEntryClickListener entryClickListener;
+    private final long[] levelCounts = new long[LogType.values().length];
+
+    // Chart rows are redrawn in place at most once per interval instead of on every append
+    private static final Object PAYLOAD_REFRESH = new Object();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable chartRefresh = this::refreshChart;
+    private final long chartRefreshIntervalMs;
+    private long lastChartRefreshUptime;
+    private boolean chartRefreshScheduled;
+    private boolean animateNextBind;
 
     private static final int COLOR_DEBUG = Color.rgb(0, 0, 255);    // Blue
     private static final int COLOR_INFO = Color.rgb(0, 255, 0);     // Green
@@ -36,8 +64,51 @@ public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private static final int COLOR_ERROR = Color.rgb(255, 0, 0);    // Red
     private static final int COLOR_VERBOSE = Color.rgb(128, 0, 128); // Purple
 
-    public LogAdapter(List<LogEntry> logs) {
-        this.logs = logs;
+    /**
+     * The colour of a level, shared by the text rows and every chart.
+     */
+    static int getColorForLogType(LogType type) {
+        switch (type) {
+            case DEBUG: return COLOR_DEBUG;
+            case INFO: return COLOR_INFO;
+            case WARNING: return COLOR_WARNING;
+            case ERROR: return COLOR_ERROR;
+            case VERBOSE: return COLOR_VERBOSE;
+            default: return Color.BLACK;
+        }
+    }
+
+    public LogAdapter(PositionList positions, long chartRefreshIntervalMs) {
+        this.positions = positions;
+        this.chartRefreshIntervalMs = chartRefreshIntervalMs;
+    }
+
+    public void setReader(LogReader reader) {
+        this.reader = reader;
+        displayCache.evictAll();
+        notifyDataSetChanged();
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Called with the store position of a plain-text row when it is tapped.
+     */
+    public void setOnEntryClickListener(OnEntryClickListener listener) {
+        this.entryClickListener = listener;
+    }
+
+    /**
+     * Per-level counts of the current view, indexed by LogType ordinal, for the chart modes.
+     */
+    public void setLevelCounts(long[] counts) {
+        if (Arrays.equals(counts, levelCounts)) {
+            return;
+        }
+        System.arraycopy(counts, 0, levelCounts, 0, levelCounts.length);
+        requestChartRefresh();
     }
 
     @Override
@@ -55,92 +126,218 @@ public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             case BAR_GRAPH:
                 View barGraphView = inflater.inflate(R.layout.bar_graph_item, parent, false);
                 return new BarGraphViewHolder(barGraphView);
+            case TIMELINE:
+                View timelineView = inflater.inflate(R.layout.timeline_item, parent, false);
+                return new TimelineViewHolder(timelineView);
             case PLAIN_TEXT:
             default:
                 View textView = inflater.inflate(R.layout.log_item, parent, false);
-                return new LogViewHolder(textView);
+                LogViewHolder holder = new LogViewHolder(textView);
+                textView.setOnClickListener(v -> {
+                    int index = holder.getBindingAdapterPosition();
+                    if (entryClickListener != null && index != RecyclerView.NO_POSITION && index < positions.size()) {
+                        entryClickListener.onEntryClick(positions.get(index));
+                    }
+                });
+                return holder;
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindChart(holder, false);
         }
     }
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (visualizationType == VisualizationType.PLAIN_TEXT) {
+            long storePosition = positions.get(position);
+            LogType type = reader.getType(storePosition);
+            String cached = displayCache.get(storePosition);
+            String text = cached;
+            if (text == null) {
+                String message = reader.getMessage(storePosition);
+                text = LogText.formatForDisplay(reader.getTag(storePosition), type,
+                        timestampFormatter.format(reader.getTimestamp(storePosition)),
+                        message != null ? message : "", reader.getFileName(storePosition),
+                        reader.getLineNumber(storePosition));
+            }
+            String detail = formatDetail(storePosition);
+            // The entry was evicted while it was read, so the text may be another entry's; the
+            // row is blank until the view drops it with the next update
+            if (!reader.contains(storePosition)) {
+                ((LogViewHolder) holder).bind("", type, null);
+                return;
+            }
+            if (cached == null) {
+                displayCache.put(storePosition, text);
+            }
+            ((LogViewHolder) holder).bind(text, type, detail);
+            if (metrics != null) {
+                metrics.onRendered();
+            }
+        } else {
+            bindChart(holder, animateNextBind);
+            animateNextBind = false;
+        }
+    }
+
+    // Not cached with the text, since the repeat count of the newest entry keeps going up
+    private String formatDetail(long storePosition) {
+        int repeatCount = reader.getRepeatCount(storePosition);
+        boolean hasTrace = reader.getTraceFingerprint(storePosition) != 0;
+        if (repeatCount <= 1 && !hasTrace) {
+            return null;
+        }
+        StringBuilder detail = new StringBuilder();
+        if (repeatCount > 1) {
+            detail.append('\u00D7').append(repeatCount).append(" until ")
+                    .append(timestampFormatter.format(reader.getLastTimestamp(storePosition)));
+        }
+        if (hasTrace) {
+            detail.append(detail.length() > 0 ? "  \u00B7  " : "").append("Tap for stack trace");
+        }
+        return reader.contains(storePosition) ? detail.toString() : null;
+    }
+
+    private void bindChart(RecyclerView.ViewHolder holder, boolean animate) {
         switch (visualizationType) {
             case PIE_CHART:
-                ((PieChartViewHolder) holder).bind(logs);
+                ((PieChartViewHolder) holder).bind(levelCounts, animate);
                 break;
             case BAR_GRAPH:
-                ((BarGraphViewHolder) holder).bind(logs);
+                ((BarGraphViewHolder) holder).bind(levelCounts, animate);
+                break;
+            case TIMELINE:
+                ((TimelineViewHolder) holder).bind(reader, positions, animate);
                 break;
-            case PLAIN_TEXT:
             default:
-                ((LogViewHolder) holder).bind(logs.get(position));
                 break;
         }
     }
 
     @Override
     public int getItemCount() {
-        return visualizationType == VisualizationType.PLAIN_TEXT ? logs.size() : 1;
+        if (reader == null) {
+            return 0;
+        }
+        return visualizationType == VisualizationType.PLAIN_TEXT ? positions.size() : 1;
+    }
+
+    /**
+     * Rows [index, index + count) were added to the position list. In chart modes a throttled
+     * refresh of the single chart row is requested instead.
+     */
+    @Override
+    public void onInserted(int index, int count) {
+        if (visualizationType == VisualizationType.PLAIN_TEXT) {
+            notifyItemRangeInserted(index, count);
+        } else {
+            requestChartRefresh();
+        }
+    }
+
+    /**
+     * The entry shown at index changed in place; only plain-text rows show per-entry state.
+     */
+    public void onChanged(int index) {
+        if (visualizationType == VisualizationType.PLAIN_TEXT) {
+            notifyItemChanged(index);
+        }
+    }
+
+    @Override
+    public void onRemoved(int index, int count) {
+        if (visualizationType == VisualizationType.PLAIN_TEXT) {
+            notifyItemRangeRemoved(index, count);
+        } else {
+            requestChartRefresh();
+        }
     }
 
+    /**
+     * Switching modes is the only time a chart animates; later data changes redraw it in place.
+     */
     public void setVisualizationType(VisualizationType type) {
         this.visualizationType = type;
+        animateNextBind = type != VisualizationType.PLAIN_TEXT;
+        cancelChartRefresh();
         notifyDataSetChanged();
     }
 
+    public void cancelChartRefresh() {
+        handler.removeCallbacks(chartRefresh);
+        chartRefreshScheduled = false;
+    }
+
+    private void requestChartRefresh() {
+        if (visualizationType == VisualizationType.PLAIN_TEXT || chartRefreshScheduled) {
+            return;
+        }
+        chartRefreshScheduled = true;
+        long delay = Math.max(0, lastChartRefreshUptime + chartRefreshIntervalMs - SystemClock.uptimeMillis());
+        handler.postDelayed(chartRefresh, delay);
+    }
+
+    private void refreshChart() {
+        chartRefreshScheduled = false;
+        lastChartRefreshUptime = SystemClock.uptimeMillis();
+        if (visualizationType == VisualizationType.PLAIN_TEXT || getItemCount() == 0) {
+            return;
+        }
+        notifyItemChanged(0, PAYLOAD_REFRESH);
+    }
+
     static class LogViewHolder extends RecyclerView.ViewHolder {
         TextView logTextView;
+        TextView detailTextView;
 
         LogViewHolder(View itemView) {
             super(itemView);
             logTextView = itemView.findViewById(R.id.logTextView);
+            detailTextView = itemView.findViewById(R.id.detailTextView);
         }
 
-        void bind(LogEntry log) {
-            logTextView.setText(log.getMessage());
-            logTextView.setTextColor(getColorForLogType(log.getType()));
-        }
-
-        private int getColorForLogType(LogType type) {
-            switch (type) {
-                case DEBUG: return COLOR_DEBUG;
-                case INFO: return COLOR_INFO;
-                case WARNING: return COLOR_WARNING;
-                case ERROR: return COLOR_ERROR;
-                case VERBOSE: return COLOR_VERBOSE;
-                default: return Color.BLACK;
+        void bind(String text, LogType type, String detail) {
+            int color = getColorForLogType(type);
+            logTextView.setText(text);
+            logTextView.setTextColor(color);
+            if (detail != null) {
+                detailTextView.setText(detail);
+                detailTextView.setTextColor(color);
+                detailTextView.setVisibility(View.VISIBLE);
+            } else {
+                detailTextView.setVisibility(View.GONE);
             }
         }
     }
 
     static class PieChartViewHolder extends RecyclerView.ViewHolder {
         PieChart pieChart;
+        private final PieEntry[] levelEntries = new PieEntry[LogType.values().length];
+        private final List<PieEntry> entries = new ArrayList<>();
+        private final List<Integer> colors = new ArrayList<>();
+        private final PieDataSet dataSet;
+        private final long[] shownCounts = new long[LogType.values().length];
 
         PieChartViewHolder(View itemView) {
             super(itemView);
             pieChart = itemView.findViewById(R.id.pieChart);
-        }
-
-        void bind(List<LogEntry> logs) {
-            Map<LogType, Integer> logTypeCounts = new HashMap<>();
-            for (LogEntry log : logs) {
-                logTypeCounts.put(log.getType(), logTypeCounts.getOrDefault(log.getType(), 0) + 1);
+            for (LogType type : LogType.values()) {
+                levelEntries[type.ordinal()] = new PieEntry(0, type.name());
             }
+            Arrays.fill(shownCounts, -1);
 
-            List<PieEntry> entries = new ArrayList<>();
-            List<Integer> colors = new ArrayList<>();
-            for (Map.Entry<LogType, Integer> entry : logTypeCounts.entrySet()) {
-                entries.add(new PieEntry(entry.getValue(), entry.getKey().name()));
-                colors.add(getColorForLogType(entry.getKey()));
-            }
-
-            PieDataSet dataSet = new PieDataSet(entries, "Log Types");
+            dataSet = new PieDataSet(entries, "Log Types");
             dataSet.setColors(colors);
             dataSet.setValueTextSize(12f);
             dataSet.setValueTextColor(Color.WHITE);
-            PieData data = new PieData(dataSet);
 
-            pieChart.setData(data);
+            pieChart.setData(new PieData(dataSet));
             pieChart.getDescription().setEnabled(false);
             pieChart.setUsePercentValues(true);
             pieChart.setExtraOffsets(5, 10, 5, 5);
@@ -151,49 +348,57 @@ public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             pieChart.setDrawCenterText(true);
             pieChart.setCenterText("Log Types");
             pieChart.setCenterTextSize(16f);
-            pieChart.animateY(1000);
-
-            pieChart.invalidate();
         }
 
-        private int getColorForLogType(LogType type) {
-            switch (type) {
-                case DEBUG: return COLOR_DEBUG;
-                case INFO: return COLOR_INFO;
-                case WARNING: return COLOR_WARNING;
-                case ERROR: return COLOR_ERROR;
-                case VERBOSE: return COLOR_VERBOSE;
-                default: return Color.BLACK;
+        void bind(long[] levelCounts, boolean animate) {
+            if (!animate && Arrays.equals(levelCounts, shownCounts)) {
+                return;
+            }
+            System.arraycopy(levelCounts, 0, shownCounts, 0, shownCounts.length);
+
+            entries.clear();
+            colors.clear();
+            for (LogType type : LogType.values()) {
+                long count = levelCounts[type.ordinal()];
+                if (count > 0) {
+                    PieEntry entry = levelEntries[type.ordinal()];
+                    entry.setY(count);
+                    entries.add(entry);
+                    colors.add(getColorForLogType(type));
+                }
+            }
+            dataSet.setColors(colors);
+            dataSet.notifyDataSetChanged();
+            pieChart.getData().notifyDataChanged();
+            pieChart.notifyDataSetChanged();
+
+            if (animate) {
+                pieChart.animateY(1000);
+            } else {
+                pieChart.invalidate();
             }
         }
     }
 
     static class BarGraphViewHolder extends RecyclerView.ViewHolder {
         BarChart barChart;
+        private final BarEntry[] levelEntries = new BarEntry[LogType.values().length];
+        private final List<BarEntry> entries = new ArrayList<>();
+        private final String[] labels = new String[LogType.values().length];
+        private final List<Integer> colors = new ArrayList<>();
+        private final BarDataSet dataSet;
+        private final IndexAxisValueFormatter labelFormatter = new IndexAxisValueFormatter();
+        private final long[] shownCounts = new long[LogType.values().length];
 
         BarGraphViewHolder(View itemView) {
             super(itemView);
             barChart = itemView.findViewById(R.id.barChart);
-        }
-
-        void bind(List<LogEntry> logs) {
-            Map<LogType, Integer> logTypeCounts = new HashMap<>();
-            for (LogEntry log : logs) {
-                logTypeCounts.put(log.getType(), logTypeCounts.getOrDefault(log.getType(), 0) + 1);
-            }
-
-            List<BarEntry> entries = new ArrayList<>();
-            List<String> labels = new ArrayList<>();
-            List<Integer> colors = new ArrayList<>();
-            int index = 0;
-            for (Map.Entry<LogType, Integer> entry : logTypeCounts.entrySet()) {
-                entries.add(new BarEntry(index, entry.getValue()));
-                labels.add(entry.getKey().name());
-                colors.add(getColorForLogType(entry.getKey()));
-                index++;
+            for (LogType type : LogType.values()) {
+                levelEntries[type.ordinal()] = new BarEntry(0, 0);
             }
+            Arrays.fill(shownCounts, -1);
 
-            BarDataSet dataSet = new BarDataSet(entries, "Log Types");
+            dataSet = new BarDataSet(entries, "Log Types");
             dataSet.setColors(colors);
             dataSet.setValueTextSize(12f);
             dataSet.setValueTextColor(Color.BLACK);
@@ -211,8 +416,7 @@ public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
             xAxis.setDrawGridLines(false);
             xAxis.setGranularity(1f);
-            xAxis.setLabelCount(labels.size());
-            xAxis.setValueFormatter(new IndexAxisValueFormatter(labels));
+            xAxis.setValueFormatter(labelFormatter);
 
             YAxis leftAxis = barChart.getAxisLeft();
             leftAxis.setLabelCount(8, false);
@@ -222,20 +426,134 @@ public class LogAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
             barChart.getAxisRight().setEnabled(false);
             barChart.getLegend().setEnabled(false);
-            barChart.animateY(1000);
+        }
+
+        void bind(long[] levelCounts, boolean animate) {
+            if (!animate && Arrays.equals(levelCounts, shownCounts)) {
+                return;
+            }
+            System.arraycopy(levelCounts, 0, shownCounts, 0, shownCounts.length);
+
+            entries.clear();
+            colors.clear();
+            int index = 0;
+            for (LogType type : LogType.values()) {
+                long count = levelCounts[type.ordinal()];
+                if (count > 0) {
+                    BarEntry entry = levelEntries[type.ordinal()];
+                    entry.setX(index);
+                    entry.setY(count);
+                    entries.add(entry);
+                    labels[index] = type.name();
+                    colors.add(getColorForLogType(type));
+                    index++;
+                }
+            }
+            labelFormatter.setValues(labels);
+            barChart.getXAxis().setLabelCount(index);
+            dataSet.setColors(colors);
+            dataSet.notifyDataSetChanged();
+            barChart.getData().notifyDataChanged();
+            barChart.notifyDataSetChanged();
+
+            if (animate) {
+                barChart.animateY(1000);
+            } else {
+                barChart.invalidate();
+            }
+        }
+    }
+
+    static class TimelineViewHolder extends RecyclerView.ViewHolder {
+        private static final int SECONDS = 60;
+
+        LineChart lineChart;
+        private final int[][] perSecond = new int[LogType.values().length][SECONDS];
+        private final Entry[][] levelEntries = new Entry[LogType.values().length][SECONDS];
+        private final List<LineDataSet> dataSets = new ArrayList<>();
+
+        TimelineViewHolder(View itemView) {
+            super(itemView);
+            lineChart = itemView.findViewById(R.id.timelineChart);
+            for (LogType type : LogType.values()) {
+                Entry[] row = levelEntries[type.ordinal()];
+                for (int i = 0; i < SECONDS; i++) {
+                    row[i] = new Entry(i - SECONDS + 1, 0);
+                }
+                LineDataSet dataSet = new LineDataSet(new ArrayList<>(Arrays.asList(row)), type.name());
+                dataSet.setColor(getColorForLogType(type));
+                dataSet.setDrawCircles(false);
+                dataSet.setDrawValues(false);
+                dataSet.setLineWidth(1.5f);
+                dataSets.add(dataSet);
+            }
+
+            lineChart.setData(new LineData(dataSets));
+            lineChart.getDescription().setEnabled(false);
 
-            barChart.invalidate();
+            XAxis xAxis = lineChart.getXAxis();
+            xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+            xAxis.setDrawGridLines(false);
+
+            YAxis leftAxis = lineChart.getAxisLeft();
+            leftAxis.setAxisMinimum(0f);
+            lineChart.getAxisRight().setEnabled(false);
+        }
+
+        /**
+         * Logs per second by level of the entries in the view, over the minute up to the newest
+         * entry of the reader, so a loaded snapshot shows its own last minute. An unfiltered view
+         * reads the reader's second buckets; a filtered one counts its own positions from the
+         * end back.
+         */
+        void bind(LogReader reader, PositionList positions, boolean animate) {
+            long end = reader.getEndPosition();
+            long endSecond = end > reader.getStartPosition() ? reader.getTimestamp(end - 1) / 1000 : 0;
+            if (positions.size() == reader.size()) {
+                reader.getAggregates().getPerSecondCounts(endSecond, SECONDS, perSecond);
+            } else {
+                countPerSecond(reader, positions, endSecond);
+            }
+
+            for (LogType type : LogType.values()) {
+                int[] counts = perSecond[type.ordinal()];
+                Entry[] row = levelEntries[type.ordinal()];
+                for (int i = 0; i < SECONDS; i++) {
+                    row[i].setY(counts[i]);
+                }
+                dataSets.get(type.ordinal()).notifyDataSetChanged();
+            }
+            lineChart.getData().notifyDataChanged();
+            lineChart.notifyDataSetChanged();
+
+            if (animate) {
+                lineChart.animateX(1000);
+            } else {
+                lineChart.invalidate();
+            }
         }
 
-        private int getColorForLogType(LogType type) {
-            switch (type) {
-                case DEBUG: return COLOR_DEBUG;
-                case INFO: return COLOR_INFO;
-                case WARNING: return COLOR_WARNING;
-                case ERROR: return COLOR_ERROR;
-                case VERBOSE: return COLOR_VERBOSE;
-                default: return Color.BLACK;
+        private void countPerSecond(LogReader reader, PositionList positions, long endSecond) {
+            for (int[] counts : perSecond) {
+                Arrays.fill(counts, 0);
+            }
+            long firstSecond = endSecond - SECONDS + 1;
+            for (int i = positions.size() - 1; i >= 0; i--) {
+                long position = positions.get(i);
+                long second = reader.getTimestamp(position) / 1000;
+                LogType type = reader.getType(position);
+                int repeatCount = reader.getRepeatCount(position);
+                if (!reader.contains(position)) {
+                    break;
+                }
+                // The view is in arrival order, which is timestamp order within the merge window
+                if (second < firstSecond) {
+                    break;
+                }
+                if (second <= endSecond) {
+                    perSecond[type.ordinal()][(int) (second - firstSecond)] += repeatCount;
+                }
             }
         }
     }
-}
\ No newline at end of file
+}
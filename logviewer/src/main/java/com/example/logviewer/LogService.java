@@ -5,55 +5,136 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 import androidx.annotation.Nullable;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class LogService extends Service {
     private static final String TAG = "LogService";
-    public static final String ACTION_LOG_UPDATED = "com.example.logviewer.LOG_UPDATED";
-    public static final String EXTRA_LOG = "extra_log";
+    // Asks a sender to attach the full trace to the next occurrence of a fingerprint
+    private static final String ACTION_TRACE_REQUEST = "com.example.logviewer.TRACE_REQUEST";
+    // How long a gap in a source's sequence may stay open before its entries count as lost
+    private static final long SEQUENCE_GRACE_MS = 1000;
+    // Past this many entries held for merging the oldest are stored without waiting
+    private static final int MAX_PENDING_ENTRIES = 10_000;
 
-    private List<LogEntry> logs = new ArrayList<>();
+    private long coalesceWindowMs;
+
+    private final IBinder binder = new LocalBinder();
+    private LogStore store;
+    private PipelineMetrics metrics;
+    private LogUpdatePublisher updatePublisher;
     private BroadcastReceiver logReceiver;
+    private final SequenceTracker sequenceTracker = new SequenceTracker(TimeUnit.MILLISECONDS.toNanos(SEQUENCE_GRACE_MS));
+    private final SequenceTracker.LossListener lossListener = this::addLossMarker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Broadcasts are parsed and stored on this thread, the store's only writer; the UI only reads
+    private HandlerThread ingestThread;
+    private Handler handler;
+    private final Runnable gapExpiry = () -> {
+        expireSequenceGaps();
+        releasePending();
+    };
+    private SourceMerger<PendingLog> merger;
+    private final SourceMerger.Sink<PendingLog> mergeSink = this::storePending;
+    private final Runnable mergeRelease = this::releasePending;
+    // Display names of the sources seen so far, by source id
+    private final Map<String, String> sourceNames = new ConcurrentHashMap<>();
+    private int releasedCount;
+    private boolean releasedMarker;
+    private long releasedReceiveNanos;
+
+    /**
+     * Same-process binding: lets the viewer page through the store instead of keeping a copy.
+     */
+    public class LocalBinder extends Binder {
+        public LogReader getReader() {
+            return store;
+        }
+
+        public PipelineMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * Display names of the sources that have connected, by source id.
+         */
+        public Map<String, String> getSourceNames() {
+            return Collections.unmodifiableMap(sourceNames);
+        }
+
+        /**
+         * Clears the store on the ingest thread, then runs onCleared on the main thread.
+         */
+        public void clearLogs(Runnable onCleared) {
+            handler.post(() -> {
+                store.clear();
+                metrics.clearLatencies();
+                mainHandler.post(onCleared);
+            });
+        }
+
+        public void addListener(LogUpdatePublisher.Listener listener) {
+            updatePublisher.addListener(listener);
+        }
+
+        public void removeListener(LogUpdatePublisher.Listener listener) {
+            updatePublisher.removeListener(listener);
+        }
+    }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        store = new LogStore(getResources().getInteger(R.integer.log_store_max_entries),
+                getResources().getInteger(R.integer.log_store_max_message_kb) * 1024L);
+        metrics = new PipelineMetrics(store);
+        coalesceWindowMs = getResources().getInteger(R.integer.log_coalesce_window_ms);
+        merger = new SourceMerger<>(TimeUnit.MILLISECONDS.toNanos(getResources().getInteger(R.integer.log_merge_window_ms)),
+                MAX_PENDING_ENTRIES);
+        updatePublisher = new LogUpdatePublisher(getResources().getInteger(R.integer.log_ui_publish_interval_ms),
+                store.getEndPosition());
         logReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
+                if (intent.hasExtra("count")) {
+                    receiveBatch(intent);
+                    return;
+                }
+
                 String type = intent.getStringExtra("type");
                 String tag = intent.getStringExtra("tag");
                 String message = intent.getStringExtra("message");
-                String timestamp = intent.getStringExtra("timestamp");
+                long timestamp = parseLegacyTimestamp(intent.getStringExtra("timestamp"));
                 String fileName = intent.getStringExtra("fileName");
                 int lineNumber = intent.getIntExtra("lineNumber", 0);
 
-                message = stripAnsiEscapeCodes(message);
-
-                // Format the log entry with all information in a single line
-                String formattedMessage = String.format("%s: [%s] %s - %s\nFile: %s, Line: %d",
-                        tag, type, timestamp, message,
-                        (fileName != null) ? fileName : "Unknown", lineNumber);
-
-                Log.d(TAG, "Broadcast received: " + formattedMessage);
-
-                LogEntry logEntry = new LogEntry(LogType.valueOf(type), tag, formattedMessage, timestamp);
-                logs.add(logEntry);
-
-                Intent logIntent = new Intent(ACTION_LOG_UPDATED);
-                logIntent.putExtra(EXTRA_LOG, logEntry);
-                LocalBroadcastManager.getInstance(context).sendBroadcast(logIntent);
+                long receiveNanos = System.nanoTime();
+                merger.add(null, receiveNanos, receiveNanos, new PendingLog(type, tag, message, timestamp, 0L,
+                        fileName, lineNumber, null, 0, 0, 1, timestamp, receiveNanos, false));
+                releasePending();
             }
         };
 
+        ingestThread = new HandlerThread("LogIngest", Process.THREAD_PRIORITY_BACKGROUND);
+        ingestThread.start();
+        handler = new Handler(ingestThread.getLooper());
         IntentFilter filter = new IntentFilter("com.example.logviewer.LOG_BROADCAST");
-        registerReceiver(logReceiver, filter);
+        registerReceiver(logReceiver, filter, null, handler);
         Log.d(TAG, "Broadcast receiver registered in service");
     }
 
@@ -61,16 +142,270 @@ public class LogService extends Service {
     public void onDestroy() {
         super.onDestroy();
         unregisterReceiver(logReceiver);
+        handler.removeCallbacks(gapExpiry);
+        handler.removeCallbacks(mergeRelease);
+        // Entries still held for merging are stored before the ingest thread stops
+        handler.post(this::flushPending);
+        ingestThread.quitSafely();
+        try {
+            ingestThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        updatePublisher.cancel();
         Log.d(TAG, "Broadcast receiver unregistered in service");
     }
 
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
+    }
+
+    private void receiveBatch(Intent intent) {
+        int count = intent.getIntExtra("count", 0);
+        String[] types = intent.getStringArrayExtra("types");
+        String[] tags = intent.getStringArrayExtra("tags");
+        String[] messages = intent.getStringArrayExtra("messages");
+        long[] timestamps = intent.getLongArrayExtra("timestamps");
+        long[] nanos = intent.getLongArrayExtra("nanos");
+        String[] fileNames = intent.getStringArrayExtra("fileNames");
+        int[] lineNumbers = intent.getIntArrayExtra("lineNumbers");
+        if (types == null || tags == null || messages == null || timestamps == null
+                || nanos == null || fileNames == null || lineNumbers == null || lineNumbers.length < count) {
+            Log.w(TAG, "Malformed log batch dropped");
+            return;
+        }
+
+        String source = intent.getStringExtra("source");
+        // Changes when the sender's sequence restarts; 0 from senders that don't send one
+        long session = intent.getLongExtra("session", 0);
+        long[] sequences = intent.getLongArrayExtra("sequences");
+        if (sequences != null && sequences.length < count) {
+            sequences = null;
+        }
+        // Present when a batch has throwables; traces only for fingerprints not sent before
+        long[] traceFingerprints = intent.getLongArrayExtra("traceFingerprints");
+        String[] traceSummaries = intent.getStringArrayExtra("traceSummaries");
+        String[] traces = intent.getStringArrayExtra("traces");
+        if (traceFingerprints == null || traceSummaries == null || traces == null
+                || traceFingerprints.length < count || traceSummaries.length < count || traces.length < count) {
+            traceFingerprints = null;
+        }
+        // Present when the sender coalesces repeats itself
+        int[] repeatCounts = intent.getIntArrayExtra("repeatCounts");
+        long[] lastTimestamps = intent.getLongArrayExtra("lastTimestamps");
+        if (repeatCounts == null || lastTimestamps == null
+                || repeatCounts.length < count || lastTimestamps.length < count) {
+            repeatCounts = null;
+            lastTimestamps = null;
+        }
+
+        long receiveNanos = System.nanoTime();
+        if (source != null && !sourceNames.containsKey(source)) {
+            String name = intent.getStringExtra("sourceName");
+            sourceNames.put(source, name != null ? name : source);
+            addConnectMarker(source, name, timestamps.length > 0 ? timestamps[0] : System.currentTimeMillis(),
+                    count > 0 && nanos[0] > 0 ? nanos[0] : receiveNanos, receiveNanos);
+        }
+        if (intent.hasExtra("emittedCount")) {
+            metrics.onSenderStats(source, intent.getLongExtra("emittedCount", -1), intent.getLongExtra("droppedCount", -1),
+                    intent.getIntExtra("queueDepth", -1));
+        }
+
+        long[] missingTraces = null;
+        int missingCount = 0;
+        for (int i = 0; i < count; i++) {
+            long sequence = sequences != null ? sequences[i] : 0;
+            int repeatCount = repeatCounts != null ? Math.max(1, repeatCounts[i]) : 1;
+            long lastTimestamp = lastTimestamps != null ? lastTimestamps[i] : timestamps[i];
+            long lastSequence = sequence > 0 ? sequence + repeatCount - 1 : 0;
+            if (!sequenceTracker.onReceived(source, session, sequence, lastSequence, timestamps[i], receiveNanos,
+                    lossListener)) {
+                metrics.onReordered();
+            }
+            String message = messages[i];
+            long traceFingerprint = 0;
+            if (traceFingerprints != null && traceFingerprints[i] != 0) {
+                traceFingerprint = traceFingerprints[i];
+                if (traces[i] != null) {
+                    store.getTraces().put(traceFingerprint, traces[i]);
+                } else if (store.getTraces().get(traceFingerprint) == null && source != null) {
+                    // Sent before, but this viewer never got it, was restarted or evicted it
+                    if (missingTraces == null) {
+                        missingTraces = new long[count];
+                    }
+                    missingTraces[missingCount++] = traceFingerprint;
+                }
+                // The exception and its message go into the text, so they can be searched for
+                message = message != null ? message + "\n" + traceSummaries[i] : traceSummaries[i];
+            }
+            // nanos is the sender's System.nanoTime(), the same monotonic clock on this device,
+            // so it orders entries across sources
+            long emitNanos = nanos[i] > 0 ? nanos[i] : receiveNanos;
+            merger.add(source, emitNanos, receiveNanos, new PendingLog(types[i], tags[i], message, timestamps[i],
+                    nanos[i], fileNames[i], lineNumbers[i], source, sequence, traceFingerprint, repeatCount,
+                    lastTimestamp, receiveNanos, false));
+            if (nanos[i] > 0) {
+                metrics.onEmitToReceive(receiveNanos - nanos[i]);
+            }
+        }
+        if (missingTraces != null) {
+            requestTraces(source, Arrays.copyOf(missingTraces, missingCount));
+        }
+        expireSequenceGaps();
+        releasePending();
+    }
+
+    private void requestTraces(String source, long[] fingerprints) {
+        Intent request = new Intent(ACTION_TRACE_REQUEST);
+        request.putExtra("source", source);
+        request.putExtra("traceFingerprints", fingerprints);
+        sendBroadcast(request);
+    }
+
+    /**
+     * Stores the held entries whose reordering window has passed, and schedules the next release.
+     */
+    private void releasePending() {
+        handler.removeCallbacks(mergeRelease);
+        long nextDueNanos = merger.release(System.nanoTime(), mergeSink);
+        publishReleased();
+        if (nextDueNanos >= 0) {
+            handler.postDelayed(mergeRelease, TimeUnit.NANOSECONDS.toMillis(nextDueNanos) + 1);
+        }
+    }
+
+    private void flushPending() {
+        merger.flush(mergeSink);
+        publishReleased();
+    }
+
+    private void publishReleased() {
+        if (releasedCount > 0) {
+            metrics.onBatchStored(store.getEndPosition(), releasedCount, releasedReceiveNanos);
+        }
+        if (releasedCount > 0 || releasedMarker) {
+            releasedCount = 0;
+            releasedMarker = false;
+            updatePublisher.onAppended(store.getEndPosition());
+        }
+    }
+
+    private void storePending(PendingLog log) {
+        addLog(log.type, log.tag, log.message, log.timestamp, log.nanos, log.fileName, log.lineNumber,
+                log.source, log.sequence, log.traceFingerprint, log.repeatCount, log.lastTimestamp);
+        if (log.marker) {
+            releasedMarker = true;
+            return;
+        }
+        // Latency is measured from the earliest receive among the entries stored together
+        releasedReceiveNanos = releasedCount == 0 ? log.receiveNanos : Math.min(releasedReceiveNanos, log.receiveNanos);
+        releasedCount++;
+    }
+
+    private void addLog(String type, String tag, String message, long timestamp, long nanos,
+                        String fileName, int lineNumber, String source, long sequence, long traceFingerprint,
+                        int repeatCount, long lastTimestamp) {
+        LogType logType = LogType.valueOf(type);
+        message = LogText.stripAnsiEscapeCodes(message);
+        // A repeat of the newest entry only bumps its count, so a tight loop costs one row
+        if (coalesceWindowMs > 0 && store.coalesce(logType, tag, message, fileName, lineNumber, source,
+                sequence, traceFingerprint, repeatCount, lastTimestamp, coalesceWindowMs)) {
+            updatePublisher.onUpdated(store.getEndPosition() - 1);
+            return;
+        }
+        // Fields are stored as received; LogAdapter renders the display text only for rows it binds
+        long position = store.append(logType, tag, message, timestamp, nanos, fileName, lineNumber, source, sequence,
+                traceFingerprint);
+        if (repeatCount > 1) {
+            store.addRepeats(position, repeatCount - 1, lastTimestamp);
+        }
     }
 
-    private String stripAnsiEscapeCodes(String input) {
-        return input.replaceAll("\u001B\\[[;\\d]*m", "");
+    /**
+     * Adds marker entries for the sequence gaps past the grace period, and schedules the next check.
+     */
+    private void expireSequenceGaps() {
+        handler.removeCallbacks(gapExpiry);
+        long nextDueNanos = sequenceTracker.expire(System.nanoTime(), lossListener);
+        if (nextDueNanos >= 0) {
+            handler.postDelayed(gapExpiry, TimeUnit.NANOSECONDS.toMillis(nextDueNanos) + 1);
+        }
+    }
+
+    // Stored as a WARNING from the source itself, so it shows up and filters with that source's
+    // entries; queued behind what the source has sent so far, like one of its own entries
+    private void addLossMarker(String source, long first, long last, long timestamp) {
+        long lost = last - first + 1;
+        String message = lost == 1
+                ? "1 entry lost (sequence " + first + ")"
+                : lost + " entries lost (sequence " + first + "-" + last + ")";
+        long nowNanos = System.nanoTime();
+        addMarker(LogType.WARNING, message, timestamp, source, nowNanos, nowNanos);
+        metrics.onLost(lost);
+    }
+
+    // Queued ahead of the source's first entry, with that entry's emit time
+    private void addConnectMarker(String source, String name, long timestamp, long emitNanos, long receiveNanos) {
+        String message = name != null ? "Connected: " + name + " (" + source + ")" : "Connected: " + source;
+        addMarker(LogType.INFO, message, timestamp, source, emitNanos, receiveNanos);
+        Log.i(TAG, message);
+    }
+
+    private void addMarker(LogType type, String message, long timestamp, String source, long emitNanos,
+                           long receiveNanos) {
+        merger.add(source, emitNanos, receiveNanos, new PendingLog(type.name(), TAG, message, timestamp, 0L, null, 0,
+                source, 0, 0, 1, timestamp, receiveNanos, true));
+    }
+
+    // Senders predating the batch format put a pre-formatted timestamp string in the intent
+    private long parseLegacyTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return System.currentTimeMillis();
+        }
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault()).parse(timestamp).getTime();
+        } catch (ParseException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    // An entry held by the merger until its reordering window has passed; a marker is one the
+    // viewer added itself, which does not count as received
+    private static final class PendingLog {
+        final String type;
+        final String tag;
+        final String message;
+        final long timestamp;
+        final long nanos;
+        final String fileName;
+        final int lineNumber;
+        final String source;
+        final long sequence;
+        final long traceFingerprint;
+        final int repeatCount;
+        final long lastTimestamp;
+        final long receiveNanos;
+        final boolean marker;
+
+        PendingLog(String type, String tag, String message, long timestamp, long nanos, String fileName,
+                   int lineNumber, String source, long sequence, long traceFingerprint, int repeatCount,
+                   long lastTimestamp, long receiveNanos, boolean marker) {
+            this.type = type;
+            this.tag = tag;
+            this.message = message;
+            this.timestamp = timestamp;
+            this.nanos = nanos;
+            this.fileName = fileName;
+            this.lineNumber = lineNumber;
+            this.source = source;
+            this.sequence = sequence;
+            this.traceFingerprint = traceFingerprint;
+            this.repeatCount = repeatCount;
+            this.lastTimestamp = lastTimestamp;
+            this.receiveNanos = receiveNanos;
+            this.marker = marker;
+        }
     }
-}
\ No newline at end of file
+}
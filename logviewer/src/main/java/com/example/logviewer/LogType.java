@@ -1,5 +0,0 @@
-package com.example.logviewer;
-
-public enum LogType {
-    DEBUG, INFO, ERROR, WARNING, VERBOSE
-}
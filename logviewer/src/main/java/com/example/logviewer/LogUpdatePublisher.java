@@ -0,0 +1,129 @@
+package com.example.logviewer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces store appends into at most one UI notification per frame (interval 0) or per
+ * configured interval. Listeners get the range of new positions and read the entries from the
+ * shared store themselves, so nothing is copied or serialized on the way to the UI. Entries
+ * already published that changed in place (a repeat count going up) are reported separately.
+ *
+ * {@link #onAppended} and {@link #onUpdated} are called by the store's writer thread; listeners
+ * are called on the main thread. The writer only records the new end and posts at most one
+ * pending publish, so a burst of appends costs the main thread one callback.
+ */
+public class LogUpdatePublisher implements Choreographer.FrameCallback, Runnable {
+    public interface Listener {
+        /**
+         * Positions [from, to) were appended since the previous call. Entries older than the
+         * store's start position may have been evicted in the meantime.
+         */
+        void onLogsAppended(long from, long to);
+
+        /**
+         * Already published positions [from, to) were modified in place. Called before
+         * onLogsAppended for the same publish.
+         */
+        void onLogsUpdated(long from, long to);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final long intervalMs;
+    private final Runnable postFrame = () -> Choreographer.getInstance().postFrameCallback(this);
+    // Written by the main thread only
+    private volatile long publishedEnd;
+    private volatile long pendingEnd;
+    // Lowest published position modified since the last publish
+    private final AtomicLong updatedFrom = new AtomicLong(Long.MAX_VALUE);
+    private volatile long lastPublishUptime;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public LogUpdatePublisher(long intervalMs, long initialEnd) {
+        this.intervalMs = intervalMs;
+        this.publishedEnd = initialEnd;
+        this.pendingEnd = initialEnd;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void onAppended(long endPosition) {
+        pendingEnd = endPosition;
+        schedule();
+    }
+
+    public void onUpdated(long position) {
+        // An entry not yet published is read with its new count when it is
+        if (position < publishedEnd) {
+            updatedFrom.accumulateAndGet(position, Math::min);
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (intervalMs <= 0) {
+            // Choreographer is per looper; the frame callback has to be posted from the main thread
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrame.run();
+            } else {
+                handler.post(postFrame);
+            }
+        } else {
+            long delay = Math.max(0, lastPublishUptime + intervalMs - SystemClock.uptimeMillis());
+            handler.postDelayed(this, delay);
+        }
+    }
+
+    /**
+     * Main thread only, after the writer has stopped.
+     */
+    public void cancel() {
+        handler.removeCallbacks(postFrame);
+        Choreographer.getInstance().removeFrameCallback(this);
+        handler.removeCallbacks(this);
+        scheduled.set(false);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        run();
+    }
+
+    @Override
+    public void run() {
+        scheduled.set(false);
+        lastPublishUptime = SystemClock.uptimeMillis();
+        long from = publishedEnd;
+        long to = pendingEnd;
+        long updated = updatedFrom.getAndSet(Long.MAX_VALUE);
+        if (updated < from) {
+            for (Listener listener : listeners) {
+                listener.onLogsUpdated(updated, from);
+            }
+        }
+        if (to <= from) {
+            return;
+        }
+        publishedEnd = to;
+        for (Listener listener : listeners) {
+            listener.onLogsAppended(from, to);
+        }
+    }
+}
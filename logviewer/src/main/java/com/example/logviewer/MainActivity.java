@@ -3,26 +3,30 @@ package com.example.logviewer;
 import android.Manifest;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
-import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.IBinder;
+import android.os.ParcelFileDescriptor;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
+import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -31,27 +35,50 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
     private RecyclerView recyclerView;
     private LogAdapter adapter;
-    private List<LogEntry> logs = new ArrayList<>();
-    private List<LogEntry> filteredLogs = new ArrayList<>();
+    // The reader shown in the view: the live store, or an opened snapshot
+    private LogReader logReader;
+    private LogReader liveReader;
+    private SnapshotReader snapshotReader;
+    private final ExecutorService snapshotWorker = Executors.newSingleThreadExecutor();
+    private LogService.LocalBinder logBinder;
+    private PipelineMetrics metrics;
+    private MetricsOverlay metricsOverlay;
+    private final PositionList filteredPositions = new PositionList();
+    private final QueryExecutor queryExecutor = new QueryExecutor();
+    private final CsvExporter csvExporter = new CsvExporter();
+    private boolean exportGzip;
+    private LogFilter currentFilter;
+    // Store positions below this one have already been run through currentFilter
+    private long filteredEnd;
+    // Per-level counts of filteredPositions, only maintained while a text query is active
+    private LevelPositions viewLevels = new LevelPositions();
+    private final long[] levelCounts = new long[LogType.values().length];
     private String currentSearchQuery = "";
+    // Only entries from this source are shown; null for all sources
+    private String selectedSource;
     private TextInputEditText searchEditText;
     private Set<LogType> activeLogTypes = new HashSet<>(Arrays.asList(LogType.values()));
     private Calendar selectedDateTime = Calendar.getInstance();
@@ -59,23 +86,54 @@ public class MainActivity extends AppCompatActivity {
     private LinearLayout checkboxContainer;
     private CheckBox checkBoxAll;
     private Map<LogType, CheckBox> logTypeCheckBoxes = new HashMap<>();
-    private Button btnDatePicker, btnTimePicker, btnExportCsv, btnClearLogs;
+    private Button btnDatePicker, btnTimePicker, btnExportCsv, btnClearLogs, btnSaveSnapshot, btnOpenSnapshot,
+            btnErrorGroups, btnSources;
     private MaterialButtonToggleGroup visualizationToggleGroup;
-    private TextView tvSelectedDateTime, tvLogCounts;
+    private TextView tvSelectedDateTime, tvLogCounts, tvMetrics;
 
     private VisualizationType currentVisualization = VisualizationType.PLAIN_TEXT;
 
     private static final int PERMISSION_REQUEST_WRITE_EXTERNAL_STORAGE = 1;
+    private static final int PERMISSION_REQUEST_SAVE_SNAPSHOT = 2;
+    private static final int REQUEST_OPEN_SNAPSHOT = 3;
+    private static final int PERMISSION_REQUEST_EXPORT_METRICS = 4;
+    private static final long SEARCH_DEBOUNCE_MS = 150;
 
-    private BroadcastReceiver logUpdateReceiver = new BroadcastReceiver() {
+    private final LogUpdatePublisher.Listener logUpdateListener = new LogUpdatePublisher.Listener() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            if (LogService.ACTION_LOG_UPDATED.equals(intent.getAction())) {
-                LogEntry logEntry = (LogEntry) intent.getSerializableExtra(LogService.EXTRA_LOG);
-                logs.add(logEntry);
-                filterLogs();
-                updateLogCounts();
-                Log.d("MainActivity", "Log entry added: " + logEntry.getMessage());
+        public void onLogsAppended(long from, long to) {
+            MainActivity.this.onLogsAppended(from, to);
+        }
+
+        @Override
+        public void onLogsUpdated(long from, long to) {
+            MainActivity.this.onLogsUpdated(from, to);
+        }
+    };
+
+    private final ServiceConnection logServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            logBinder = (LogService.LocalBinder) service;
+            liveReader = logBinder.getReader();
+            metrics = logBinder.getMetrics();
+            adapter.setMetrics(metrics);
+            metricsOverlay.setMetrics(metrics);
+            logBinder.addListener(logUpdateListener);
+            if (snapshotReader == null) {
+                showReader(liveReader);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            logBinder = null;
+            liveReader = null;
+            metrics = null;
+            adapter.setMetrics(null);
+            metricsOverlay.setMetrics(null);
+            if (snapshotReader == null) {
+                showReader(null);
             }
         }
     };
@@ -91,8 +149,11 @@ public class MainActivity extends AppCompatActivity {
         initViews();
         setupRecyclerView();
         setupListeners();
-        setupBroadcastReceiver();
+        bindLogService();
 
+        // Minute-aligned, so counts can be read straight from the store's minute buckets
+        selectedDateTime.set(Calendar.SECOND, 0);
+        selectedDateTime.set(Calendar.MILLISECOND, 0);
         updateSelectedDateTimeText();
         filterLogs();
         updateLogCounts();
@@ -107,8 +168,14 @@ public class MainActivity extends AppCompatActivity {
         tvSelectedDateTime = findViewById(R.id.tvSelectedDateTime);
         btnExportCsv = findViewById(R.id.btnExportCsv);
         btnClearLogs = findViewById(R.id.btnClearLogs);
+        btnSaveSnapshot = findViewById(R.id.btnSaveSnapshot);
+        btnOpenSnapshot = findViewById(R.id.btnOpenSnapshot);
+        btnErrorGroups = findViewById(R.id.btnErrorGroups);
+        btnSources = findViewById(R.id.btnSources);
         visualizationToggleGroup = findViewById(R.id.visualizationToggleGroup);
         tvLogCounts = findViewById(R.id.tvLogCounts);
+        tvMetrics = findViewById(R.id.tvMetrics);
+        metricsOverlay = new MetricsOverlay(tvMetrics);
 
         setupCheckboxes();
     }
@@ -143,9 +210,22 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        adapter = new LogAdapter(filteredLogs);
+        adapter = new LogAdapter(filteredPositions,
+                getResources().getInteger(R.integer.log_chart_refresh_interval_ms));
+        adapter.setOnEntryClickListener(this::onEntryClick);
         recyclerView.setAdapter(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Rows arrive continuously; per-item animations would only add work while tailing
+        recyclerView.setItemAnimator(null);
+
+        // The list must have a bounded height inside the scroll view, otherwise RecyclerView
+        // lays out (and binds) every row instead of recycling a screenful
+        NestedScrollView scrollView = findViewById(R.id.scrollView);
+        scrollView.post(() -> {
+            ViewGroup.LayoutParams params = recyclerView.getLayoutParams();
+            params.height = scrollView.getHeight();
+            recyclerView.setLayoutParams(params);
+        });
     }
 
     private void setupListeners() {
@@ -154,6 +234,10 @@ public class MainActivity extends AppCompatActivity {
         setupDateTimeListeners();
         setupExportButton();
         setupClearLogsButton();
+        setupSnapshotButtons();
+        setupMetricsOverlay();
+        btnErrorGroups.setOnClickListener(v -> showErrorGroups());
+        btnSources.setOnClickListener(v -> showSources());
         setupVisualizationToggle();
     }
 
@@ -184,8 +268,8 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void afterTextChanged(Editable s) {
-                currentSearchQuery = s.toString().trim().toLowerCase();
-                filterLogs();
+                currentSearchQuery = s.toString().trim();
+                filterLogs(SEARCH_DEBOUNCE_MS);
             }
         });
     }
@@ -196,13 +280,44 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupExportButton() {
-        btnExportCsv.setOnClickListener(v -> exportLogsToCSV());
+        btnExportCsv.setOnClickListener(v -> {
+            exportGzip = false;
+            exportLogsToCSV();
+        });
+        // Long press writes a gzip-compressed file instead
+        btnExportCsv.setOnLongClickListener(v -> {
+            exportGzip = true;
+            exportLogsToCSV();
+            return true;
+        });
     }
 
     private void setupClearLogsButton() {
         btnClearLogs.setOnClickListener(v -> clearLogs());
     }
 
+    private void setupSnapshotButtons() {
+        btnSaveSnapshot.setOnClickListener(v -> saveSnapshot());
+        btnOpenSnapshot.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            startActivityForResult(intent, REQUEST_OPEN_SNAPSHOT);
+        });
+    }
+
+    private void setupMetricsOverlay() {
+        // Long press on the counts line shows the pipeline metrics; long press on those exports them
+        tvLogCounts.setOnLongClickListener(v -> {
+            metricsOverlay.toggle();
+            return true;
+        });
+        tvMetrics.setOnLongClickListener(v -> {
+            exportMetrics();
+            return true;
+        });
+    }
+
     private void setupVisualizationToggle() {
         visualizationToggleGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
             if (isChecked) {
@@ -212,26 +327,33 @@ public class MainActivity extends AppCompatActivity {
                     currentVisualization = VisualizationType.PIE_CHART;
                 } else if (checkedId == R.id.btnBarGraph) {
                     currentVisualization = VisualizationType.BAR_GRAPH;
+                } else if (checkedId == R.id.btnTimeline) {
+                    currentVisualization = VisualizationType.TIMELINE;
                 }
                 adapter.setVisualizationType(currentVisualization);
-                adapter.notifyDataSetChanged();
             }
         });
     }
 
-    private void setupBroadcastReceiver() {
-        LocalBroadcastManager.getInstance(this).registerReceiver(logUpdateReceiver,
-                new IntentFilter(LogService.ACTION_LOG_UPDATED));
+    private void bindLogService() {
+        // Started as well as bound, so capture keeps running while the viewer is closed
         Intent intent = new Intent(this, LogService.class);
         startService(intent);
+        bindService(intent, logServiceConnection, Context.BIND_AUTO_CREATE);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        LocalBroadcastManager.getInstance(this).unregisterReceiver(logUpdateReceiver);
-        Intent intent = new Intent(this, LogService.class);
-        stopService(intent);
+        if (logBinder != null) {
+            logBinder.removeListener(logUpdateListener);
+        }
+        unbindService(logServiceConnection);
+        queryExecutor.shutdown();
+        csvExporter.shutdown();
+        snapshotWorker.shutdownNow();
+        adapter.cancelChartRefresh();
+        metricsOverlay.stop();
     }
 
     private void updateActiveLogTypes() {
@@ -257,19 +379,142 @@ public class MainActivity extends AppCompatActivity {
         return true;
     }
 
+    private void showReader(LogReader reader) {
+        logReader = reader;
+        filteredEnd = 0;
+        filteredPositions.clear();
+        viewLevels.clear();
+        adapter.setReader(reader);
+        filterLogs();
+    }
+
     private void filterLogs() {
-        filteredLogs.clear();
-        for (LogEntry log : logs) {
-            if (activeLogTypes.contains(log.getType()) &&
-                    (currentSearchQuery.isEmpty() || log.getMessage().toLowerCase().contains(currentSearchQuery)) &&
-                    isLogWithinSelectedDateTime(log)) {
-                filteredLogs.add(log);
+        filterLogs(0);
+    }
+
+    /**
+     * Recomputes the filtered view from scratch after the filter itself changed. The scan runs
+     * on the query executor, which drops superseded queries; the result is applied as a diff
+     * against the current list.
+     */
+    private void filterLogs(long debounceMs) {
+        LogQuery query;
+        try {
+            query = LogQuery.parse(currentSearchQuery);
+            searchEditText.setError(null);
+        } catch (ParseException e) {
+            // Keep showing the last valid filter while the query is being typed
+            searchEditText.setError(e.getMessage());
+            return;
+        }
+        LogFilter filter = new LogFilter(activeLogTypes, selectedDateTime.getTimeInMillis(), query, selectedSource);
+        currentFilter = filter;
+        LogReader reader = logReader;
+        if (reader == null) {
+            queryExecutor.cancel();
+            int removed = filteredPositions.size();
+            filteredPositions.clear();
+            if (removed > 0) {
+                adapter.onRemoved(0, removed);
             }
+            updateLogCounts();
+            return;
+        }
+
+        queryExecutor.submit(reader, filter, debounceMs,
+                (result, levels, end) -> applyFilterResult(filter, reader, result, levels, end));
+    }
+
+    private void applyFilterResult(LogFilter filter, LogReader reader, PositionList result,
+                                   LevelPositions levels, long end) {
+        if (filter != currentFilter || reader != logReader) {
+            return;
+        }
+
+        // Entries that arrived while the scan was running were appended under the same filter
+        int scanned = result.size();
+        filter.filterRange(reader, end, filteredEnd, result);
+        filteredEnd = Math.max(filteredEnd, end);
+        long start = reader.getStartPosition();
+        if (levels != null) {
+            levels.addAll(reader, result, scanned);
+            levels.removeBefore(start);
+            viewLevels = levels;
+        } else {
+            viewLevels.clear();
         }
-        adapter.notifyDataSetChanged();
+        result.removeFirst(result.lowerBound(start));
+
+        PositionDiff.dispatch(filteredPositions, result, adapter);
+        filteredPositions.setAll(result);
         updateLogCounts();
     }
 
+    /**
+     * New entries are only tested against the current filter and appended to the view.
+     */
+    private void onLogsAppended(long from, long to) {
+        LogReader reader = logReader;
+        if (reader == null || reader != liveReader || currentFilter == null) {
+            return;
+        }
+
+        long start = reader.getStartPosition();
+        int evicted = filteredPositions.lowerBound(start);
+        if (evicted > 0) {
+            filteredPositions.removeFirst(evicted);
+            adapter.onRemoved(0, evicted);
+        }
+
+        int oldSize = filteredPositions.size();
+        boolean following = isFollowingTail(oldSize);
+        long filterFrom = Math.max(from, filteredEnd);
+        currentFilter.filterRange(reader, filterFrom, to, filteredPositions);
+        filteredEnd = Math.max(filteredEnd, to);
+
+        int added = filteredPositions.size() - oldSize;
+        if (currentFilter.hasEntryConditions()) {
+            viewLevels.removeBefore(start);
+            viewLevels.addAll(reader, filteredPositions, oldSize);
+        }
+        if (added > 0) {
+            adapter.onInserted(oldSize, added);
+            if (following) {
+                recyclerView.scrollToPosition(filteredPositions.size() - 1);
+            }
+        }
+        if (evicted > 0 || added > 0) {
+            updateLogCounts();
+        }
+
+        PipelineMetrics pipelineMetrics = metrics;
+        if (pipelineMetrics != null) {
+            pipelineMetrics.onFiltered((int) Math.max(0, to - filterFrom));
+            // Runs with the next frame, after the inserted rows have been laid out
+            recyclerView.postOnAnimation(() -> pipelineMetrics.onDisplayed(to, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Rebinds the visible rows of entries whose repeat count went up.
+     */
+    private void onLogsUpdated(long from, long to) {
+        if (logReader == null || logReader != liveReader) {
+            return;
+        }
+        for (int i = filteredPositions.lowerBound(from); i < filteredPositions.size() && filteredPositions.get(i) < to; i++) {
+            adapter.onChanged(i);
+        }
+    }
+
+    private boolean isFollowingTail(int itemCount) {
+        if (currentVisualization != VisualizationType.PLAIN_TEXT) {
+            return false;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        return itemCount == 0 || layoutManager.findLastVisibleItemPosition() >= itemCount - 1;
+    }
+
     private void showDatePicker() {
         DatePickerDialog datePickerDialog = new DatePickerDialog(
                 this,
@@ -308,17 +553,6 @@ public class MainActivity extends AppCompatActivity {
         tvSelectedDateTime.setText("Selected: " + sdf.format(selectedDateTime.getTime()));
     }
 
-    private boolean isLogWithinSelectedDateTime(LogEntry log) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
-        try {
-            Date logDate = sdf.parse(log.getTimestamp());
-            return !logDate.before(selectedDateTime.getTime());
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-
     private void exportLogsToCSV() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -327,41 +561,242 @@ public class MainActivity extends AppCompatActivity {
                     PERMISSION_REQUEST_WRITE_EXTERNAL_STORAGE);
             return;
         }
+        if (logReader == null || currentFilter == null) {
+            Toast.makeText(this, "Log service not connected yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         File exportDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "LogExports");
         if (!exportDir.exists()) {
             exportDir.mkdirs();
         }
 
-        File file = new File(exportDir, "logs_export_" + System.currentTimeMillis() + ".csv");
+        boolean gzip = exportGzip;
+        File file = new File(exportDir, "logs_export_" + System.currentTimeMillis() + (gzip ? ".csv.gz" : ".csv"));
 
-        try {
-            FileWriter fw = new FileWriter(file);
-            fw.append("Timestamp,Type,Message\n");
-
-            for (LogEntry log : filteredLogs) {
-                fw.append(log.getTimestamp())
-                        .append(",")
-                        .append(log.getType().name())
-                        .append(",")
-                        .append(log.getMessage().replace(",", ";")) // Escape commas in the message
-                        .append("\n");
+        Snackbar progress = Snackbar.make(recyclerView, "Exporting logs...", Snackbar.LENGTH_INDEFINITE)
+                .setAction("Cancel", v -> csvExporter.cancel());
+        progress.show();
+
+        csvExporter.export(logReader, currentFilter, file, gzip, new CsvExporter.Listener() {
+            @Override
+            public void onProgress(long scanned, long total) {
+                progress.setText("Exporting logs... " + (total > 0 ? scanned * 100 / total : 100) + "%");
+            }
+
+            @Override
+            public void onFinished(File file, long rows) {
+                progress.dismiss();
+                Snackbar.make(recyclerView, rows + " logs exported to Downloads/LogExports", Snackbar.LENGTH_LONG)
+                        .setAction("Open", v -> {
+                            // Implement file opening logic here
+                        })
+                        .show();
             }
 
-            fw.flush();
-            fw.close();
+            @Override
+            public void onFailed(File file, IOException error) {
+                progress.dismiss();
+                Toast.makeText(MainActivity.this, "Error exporting logs: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            }
 
-            Snackbar.make(recyclerView, "Logs exported to Downloads/LogExports", Snackbar.LENGTH_LONG)
-                    .setAction("Open", v -> {
-                        // Implement file opening logic here
+            @Override
+            public void onCancelled(File file) {
+                progress.dismiss();
+            }
+        });
+    }
+
+    private void saveSnapshot() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE},
+                    PERMISSION_REQUEST_SAVE_SNAPSHOT);
+            return;
+        }
+        LogReader reader = liveReader;
+        if (reader == null) {
+            Toast.makeText(this, "Log service not connected yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        File exportDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "LogExports");
+        if (!exportDir.exists()) {
+            exportDir.mkdirs();
+        }
+        File file = new File(exportDir, "logs_snapshot_" + System.currentTimeMillis() + SnapshotFormat.FILE_EXTENSION);
+
+        snapshotWorker.execute(() -> {
+            try {
+                long written = SnapshotWriter.write(reader, file);
+                runOnUiThread(() -> Snackbar.make(recyclerView,
+                        written + " logs saved to Downloads/LogExports/" + file.getName(), Snackbar.LENGTH_LONG).show());
+            } catch (IOException e) {
+                file.delete();
+                runOnUiThread(() -> Toast.makeText(this, "Error saving snapshot: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    private void onEntryClick(long position) {
+        LogReader reader = logReader;
+        if (reader == null || !reader.contains(position)) {
+            return;
+        }
+        long fingerprint = reader.getTraceFingerprint(position);
+        if (fingerprint != 0) {
+            showTrace(reader, fingerprint);
+        }
+    }
+
+    private void showTrace(LogReader reader, long fingerprint) {
+        String trace = reader.getTrace(fingerprint);
+        new AlertDialog.Builder(this)
+                .setTitle(String.format(Locale.US, "Stack trace %016x", fingerprint))
+                .setMessage(trace != null ? trace
+                        : "The full trace was sent before this viewer started and is not available.")
+                .setPositiveButton("Close", null)
+                .show();
+    }
+
+    /**
+     * Lists the retained entries with stack traces grouped by trace fingerprint, most frequent first.
+     */
+    private void showErrorGroups() {
+        LogReader reader = logReader;
+        if (reader == null) {
+            Toast.makeText(this, "Log service not connected yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        snapshotWorker.execute(() -> {
+            List<TraceGroup> groups = TraceGroup.collect(reader);
+            TimestampFormatter formatter = new TimestampFormatter();
+            String[] labels = new String[groups.size()];
+            for (int i = 0; i < labels.length; i++) {
+                TraceGroup group = groups.get(i);
+                String trace = reader.getTrace(group.getFingerprint());
+                String headline = trace != null ? trace : reader.getMessage(group.getLastPosition());
+                if (headline == null) {
+                    headline = "";
+                }
+                int lineEnd = headline.indexOf('\n');
+                labels[i] = group.getCount() + "\u00D7 " + (lineEnd >= 0 ? headline.substring(0, lineEnd) : headline)
+                        + "\nlast " + formatter.format(group.getLastTimestamp());
+            }
+            runOnUiThread(() -> {
+                if (groups.isEmpty()) {
+                    Toast.makeText(this, "No errors with stack traces", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Error groups")
+                        .setItems(labels, (dialog, which) -> showTrace(reader, groups.get(which).getFingerprint()))
+                        .setNegativeButton("Close", null)
+                        .show();
+            });
+        });
+    }
+
+    /**
+     * Lets the user pick the source whose entries are shown, the one with the most entries first.
+     */
+    private void showSources() {
+        LogReader reader = logReader;
+        if (reader == null) {
+            Toast.makeText(this, "Log service not connected yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Map<String, String> names = logBinder != null ? logBinder.getSourceNames() : Collections.emptyMap();
+        snapshotWorker.execute(() -> {
+            List<SourceSummary> sources = SourceSummary.collect(reader);
+            String[] labels = new String[sources.size() + 1];
+            labels[0] = "All sources";
+            for (int i = 0; i < sources.size(); i++) {
+                SourceSummary source = sources.get(i);
+                labels[i + 1] = sourceLabel(names, source.getSource()) + "\n" + source.getCount() + " entries";
+            }
+            runOnUiThread(() -> new AlertDialog.Builder(this)
+                    .setTitle("Sources")
+                    .setItems(labels, (dialog, which) -> {
+                        selectedSource = which == 0 ? null : sources.get(which - 1).getSource();
+                        btnSources.setText(selectedSource == null ? "All Sources" : sourceLabel(names, selectedSource));
+                        filterLogs();
                     })
-                    .show();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error exporting logs: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    .setNegativeButton("Close", null)
+                    .show());
+        });
+    }
+
+    private static String sourceLabel(Map<String, String> names, String source) {
+        String name = names.get(source);
+        return name != null && !name.equals(source) ? name + " (" + source + ")" : source;
+    }
+
+    private void exportMetrics() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE},
+                    PERMISSION_REQUEST_EXPORT_METRICS);
+            return;
+        }
+        if (metrics == null) {
+            Toast.makeText(this, "Log service not connected yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String json = metrics.snapshot().toJson();
+        File exportDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "LogExports");
+        if (!exportDir.exists()) {
+            exportDir.mkdirs();
+        }
+        File file = new File(exportDir, "metrics_" + System.currentTimeMillis() + ".json");
+
+        snapshotWorker.execute(() -> {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                writer.write(json);
+                runOnUiThread(() -> Snackbar.make(recyclerView,
+                        "Metrics saved to Downloads/LogExports/" + file.getName(), Snackbar.LENGTH_LONG).show());
+            } catch (IOException e) {
+                runOnUiThread(() -> Toast.makeText(this, "Error saving metrics: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_OPEN_SNAPSHOT && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            Uri uri = data.getData();
+            snapshotWorker.execute(() -> {
+                try (ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "r");
+                     FileInputStream in = new FileInputStream(descriptor.getFileDescriptor())) {
+                    SnapshotReader reader = new SnapshotReader(in.getChannel(), uri.getLastPathSegment());
+                    // Scans every block, so it is built here rather than by the first count update
+                    reader.getAggregates();
+                    runOnUiThread(() -> openSnapshot(reader));
+                } catch (IOException | RuntimeException e) {
+                    runOnUiThread(() -> Toast.makeText(this, "Error opening snapshot: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                }
+            });
         }
     }
 
+    /**
+     * Shows the snapshot instead of the live store until the user goes back to live logs.
+     */
+    private void openSnapshot(SnapshotReader reader) {
+        snapshotReader = reader;
+        showReader(reader);
+        Snackbar.make(recyclerView, "Viewing snapshot " + reader.getName(), Snackbar.LENGTH_INDEFINITE)
+                .setAction("Live", v -> {
+                    snapshotReader = null;
+                    showReader(liveReader);
+                })
+                .show();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -371,24 +806,59 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 Toast.makeText(this, "Permission denied. Cannot export logs.", Toast.LENGTH_SHORT).show();
             }
+        } else if (requestCode == PERMISSION_REQUEST_SAVE_SNAPSHOT) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                saveSnapshot();
+            } else {
+                Toast.makeText(this, "Permission denied. Cannot save snapshot.", Toast.LENGTH_SHORT).show();
+            }
+        } else if (requestCode == PERMISSION_REQUEST_EXPORT_METRICS) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                exportMetrics();
+            } else {
+                Toast.makeText(this, "Permission denied. Cannot export metrics.", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
     private void clearLogs() {
-        logs.clear();
-        filterLogs();
-        Snackbar.make(recyclerView, "All logs cleared", Snackbar.LENGTH_SHORT).show();
+        if (logBinder == null) {
+            filterLogs();
+            return;
+        }
+        // The store is cleared by its writer thread, so the view is refreshed once that is done
+        logBinder.clearLogs(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            filterLogs();
+            Snackbar.make(recyclerView, "All logs cleared", Snackbar.LENGTH_SHORT).show();
+        });
     }
 
+    /**
+     * Without a text query or source the view is fully described by level and start time, so
+     * its counts come from the store's minute buckets; otherwise they are kept alongside the view.
+     */
     private void updateLogCounts() {
-        Map<LogType, Integer> counts = new HashMap<>();
-        for (LogEntry log : filteredLogs) {
-            counts.put(log.getType(), counts.getOrDefault(log.getType(), 0) + 1);
+        LogFilter filter = currentFilter;
+        if (logReader == null || filter == null) {
+            Arrays.fill(levelCounts, 0);
+        } else if (filter.hasEntryConditions()) {
+            viewLevels.getCounts(levelCounts);
+        } else {
+            logReader.getAggregates().getCountsSince(filter.getMinTimestamp(), levelCounts);
+            for (LogType type : LogType.values()) {
+                if (!filter.isActive(type)) {
+                    levelCounts[type.ordinal()] = 0;
+                }
+            }
         }
+        adapter.setLevelCounts(levelCounts);
 
         StringBuilder sb = new StringBuilder("Log Counts: ");
         for (LogType type : LogType.values()) {
-            sb.append(type.name()).append(": ").append(counts.getOrDefault(type, 0)).append(" ");
+            sb.append(type.name()).append(": ").append(levelCounts[type.ordinal()]).append(" ");
         }
         tvLogCounts.setText(sb.toString());
     }
@@ -0,0 +1,115 @@
+package com.example.logviewer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.Locale;
+
+/**
+ * Compact text view of the {@link PipelineMetrics}, refreshed once a second while visible.
+ * Rates are computed from the difference to the previous refresh; sender counters are summed
+ * over all sources. Main thread only.
+ */
+public class MetricsOverlay implements Runnable {
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private final TextView view;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private PipelineMetrics metrics;
+    private PipelineMetrics.Snapshot previous;
+
+    public MetricsOverlay(TextView view) {
+        this.view = view;
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        previous = null;
+    }
+
+    public void toggle() {
+        if (view.getVisibility() == View.VISIBLE) {
+            view.setVisibility(View.GONE);
+            handler.removeCallbacks(this);
+        } else {
+            view.setVisibility(View.VISIBLE);
+            previous = null;
+            run();
+        }
+    }
+
+    public void stop() {
+        handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+        if (metrics == null) {
+            view.setText("Metrics: log service not connected");
+        } else {
+            PipelineMetrics.Snapshot current = metrics.snapshot();
+            view.setText(format(previous, current));
+            previous = current;
+        }
+        handler.postDelayed(this, REFRESH_INTERVAL_MS);
+    }
+
+    private static String format(PipelineMetrics.Snapshot previous, PipelineMetrics.Snapshot current) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("emit ").append(previous != null && previous.senderEmitted >= 0
+                        ? rate(previous, current, previous.senderEmitted, current.senderEmitted) : "-")
+                .append("/s  recv ").append(rate(previous, current, previous != null ? previous.received : 0, current.received))
+                .append("/s  filt ").append(rate(previous, current, previous != null ? previous.filtered : 0, current.filtered))
+                .append("/s  rend ").append(rate(previous, current, previous != null ? previous.rendered : 0, current.rendered))
+                .append("/s\n");
+        sb.append("queue ").append(current.senderQueueDepth >= 0 ? String.valueOf(current.senderQueueDepth) : "-")
+                .append("  dropped ").append(current.senderDropped >= 0 ? String.valueOf(current.senderDropped) : "-")
+                .append(current.senders.size() > 1 ? " (" + current.senders.size() + " senders)" : "")
+                .append("  lost ").append(current.lost)
+                .append("  reordered ").append(current.reordered)
+                .append(String.format(Locale.US, "  store %d logs, %.1f MB text, %.1f MB index, %.1f MB heap\n",
+                        current.storeEntries, megabytes(current.storeMessageBytes),
+                        megabytes(current.storeIndexBytes), megabytes(current.storeAllocatedBytes)));
+        appendLatency(sb, "emit>recv", current.emitToReceive);
+        sb.append('\n');
+        appendLatency(sb, "recv>disp", current.receiveToDisplay);
+        return sb.toString();
+    }
+
+    private static String rate(PipelineMetrics.Snapshot previous, PipelineMetrics.Snapshot current,
+                               long previousValue, long currentValue) {
+        if (previous == null) {
+            return "-";
+        }
+        long elapsed = current.uptimeNanos - previous.uptimeNanos;
+        return elapsed > 0 ? String.valueOf(Math.round((currentValue - previousValue) * 1e9 / elapsed)) : "-";
+    }
+
+    private static void appendLatency(StringBuilder sb, String label, PipelineMetrics.Latency latency) {
+        sb.append(label);
+        if (latency.count == 0) {
+            sb.append("  -");
+            return;
+        }
+        sb.append("  p50 ").append(duration(latency.p50))
+                .append("  p90 ").append(duration(latency.p90))
+                .append("  p99 ").append(duration(latency.p99))
+                .append("  max ").append(duration(latency.max));
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000_000L) {
+            return (nanos / 1000) + "us";
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format(Locale.US, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.US, "%.2fs", nanos / 1e9);
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.logviewer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs full filter passes on a worker thread. Every submission bumps a generation counter:
+ * a running pass checks it as it scans and stops as soon as it is superseded, and a finished
+ * pass only reaches its callback (on the main thread) if no newer query was submitted since.
+ * Submissions can be debounced so that typing only runs the last query.
+ */
+public class QueryExecutor {
+    public interface Callback {
+        /**
+         * The result covers store positions below end; levels splits it by level if the filter
+         * has entry conditions and is null otherwise. Called on the main thread, only for the
+         * latest submitted query.
+         */
+        void onQueryResult(PositionList result, LevelPositions levels, long end);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicLong generation = new AtomicLong();
+    private Runnable pendingStart;
+
+    public void submit(LogReader reader, LogFilter filter, long debounceMs, Callback callback) {
+        long queryGeneration = generation.incrementAndGet();
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+
+        Runnable start = () -> {
+            pendingStart = null;
+            worker.execute(() -> run(queryGeneration, reader, filter, callback));
+        };
+        if (debounceMs > 0) {
+            pendingStart = start;
+            mainHandler.postDelayed(start, debounceMs);
+        } else {
+            start.run();
+        }
+    }
+
+    /**
+     * Supersedes any queued or running query without starting a new one.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void run(long queryGeneration, LogReader reader, LogFilter filter, Callback callback) {
+        if (generation.get() != queryGeneration) {
+            return;
+        }
+
+        long start = reader.getStartPosition();
+        long end = reader.getEndPosition();
+        PositionList result = new PositionList();
+        boolean completed = filter.filterRange(reader, start, end, result,
+                () -> generation.get() != queryGeneration);
+        if (!completed) {
+            return;
+        }
+
+        LevelPositions levels = filter.hasEntryConditions() ? new LevelPositions() : null;
+        if (levels != null) {
+            levels.addAll(reader, result, 0);
+        }
+
+        mainHandler.post(() -> {
+            if (generation.get() == queryGeneration) {
+                callback.onQueryResult(result, levels, end);
+            }
+        });
+    }
+}
@@ -3,5 +3,6 @@ package com.example.logviewer;
 public enum VisualizationType {
     PLAIN_TEXT,
     PIE_CHART,
-    BAR_GRAPH
+    BAR_GRAPH,
+    TIMELINE
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.example.orslogger;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Packs a batch of records into a single broadcast, one parallel array per field,
+ * so LogService can unpack the whole batch in one onReceive. Every batch carries the
+ * source id of this process, which together with the per-record sequence numbers lets
+ * the receiver detect lost and reordered broadcasts, and merge the entries of several
+ * processes into one timeline.
+ *
+ * Throwables travel as a fingerprint plus their toString(). The full trace is attached only
+ * the first time a fingerprint is sent; the receiver keeps it in a trace dictionary, so a
+ * crash loop costs a few bytes per occurrence. A viewer that gets a fingerprint it has no trace
+ * for asks for it with a trace request, and the next occurrence carries the trace again.
+ */
+final class BroadcastSink implements LogSink {
+    static final String ACTION_LOG_BROADCAST = "com.example.logviewer.LOG_BROADCAST";
+    static final String ACTION_TRACE_REQUEST = "com.example.logviewer.TRACE_REQUEST";
+    private static final int MAX_SENT_TRACES = 4096;
+    // Sequence numbers restart with the process, and so does this; a reused pid gets a new one
+    private static final long SESSION_ID = newSessionId();
+
+    private final Context context;
+    private final String sourceId;
+    private final String sourceName;
+    private final SentTraces sentTraces = new SentTraces(MAX_SENT_TRACES);
+
+    BroadcastSink(Context context) {
+        this.context = context;
+        // Sequence numbers restart with the process, so the pid is part of the id
+        this.sourceId = context.getPackageName() + ":" + Process.myPid();
+        this.sourceName = context.getApplicationInfo().loadLabel(context.getPackageManager()).toString();
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                long[] fingerprints = intent.getLongArrayExtra("traceFingerprints");
+                if (fingerprints == null || !sourceId.equals(intent.getStringExtra("source"))) {
+                    return;
+                }
+                for (long fingerprint : fingerprints) {
+                    sentTraces.forget(fingerprint);
+                }
+            }
+        }, new IntentFilter(ACTION_TRACE_REQUEST));
+    }
+
+    @Override
+    public void send(List<LogRecord> batch) {
+        int count = batch.size();
+        String[] types = new String[count];
+        String[] tags = new String[count];
+        String[] messages = new String[count];
+        long[] timestamps = new long[count];
+        long[] nanos = new long[count];
+        long[] sequences = new long[count];
+        int[] repeatCounts = new int[count];
+        long[] lastTimestamps = new long[count];
+        long[] traceFingerprints = null;
+        String[] traceSummaries = null;
+        String[] traces = null;
+        List<Long> newTraces = null;
+        String[] fileNames = new String[count];
+        int[] lineNumbers = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            LogRecord record = batch.get(i);
+            types[i] = record.type.name();
+            tags[i] = record.tag;
+            messages[i] = record.message;
+            timestamps[i] = record.timestamp;
+            nanos[i] = record.nanos;
+            sequences[i] = record.sequence;
+            repeatCounts[i] = record.repeatCount;
+            lastTimestamps[i] = record.lastTimestamp;
+            if (record.throwable != null) {
+                if (traceFingerprints == null) {
+                    traceFingerprints = new long[count];
+                    traceSummaries = new String[count];
+                    traces = new String[count];
+                }
+                long fingerprint = StackTraces.fingerprint(record.throwable);
+                traceFingerprints[i] = fingerprint;
+                traceSummaries[i] = record.throwable.toString();
+                if (sentTraces.markSent(fingerprint)) {
+                    traces[i] = StackTraces.format(record.throwable);
+                    if (newTraces == null) {
+                        newTraces = new ArrayList<>();
+                    }
+                    newTraces.add(fingerprint);
+                }
+            }
+            fileNames[i] = record.callSite.fileName;
+            lineNumbers[i] = record.callSite.lineNumber;
+        }
+
+        Intent intent = new Intent(ACTION_LOG_BROADCAST);
+        intent.putExtra("source", sourceId);
+        intent.putExtra("session", SESSION_ID);
+        // The viewer may start after this process, so every batch identifies the source
+        intent.putExtra("sourceName", sourceName);
+        intent.putExtra("count", count);
+        intent.putExtra("types", types);
+        intent.putExtra("tags", tags);
+        intent.putExtra("messages", messages);
+        intent.putExtra("timestamps", timestamps);
+        intent.putExtra("nanos", nanos);
+        intent.putExtra("sequences", sequences);
+        intent.putExtra("repeatCounts", repeatCounts);
+        intent.putExtra("lastTimestamps", lastTimestamps);
+        if (traceFingerprints != null) {
+            intent.putExtra("traceFingerprints", traceFingerprints);
+            intent.putExtra("traceSummaries", traceSummaries);
+            intent.putExtra("traces", traces);
+        }
+        intent.putExtra("fileNames", fileNames);
+        intent.putExtra("lineNumbers", lineNumbers);
+        // Sender-side pipeline counters, for the viewer's metrics overlay
+        intent.putExtra("emittedCount", OrsLogger.getEmittedCount());
+        intent.putExtra("droppedCount", OrsLogger.getDroppedCount());
+        intent.putExtra("queueDepth", OrsLogger.getQueueDepth());
+        try {
+            context.sendBroadcast(intent);
+        } catch (RuntimeException e) {
+            // The receiver never got these traces; send them in full next time
+            if (newTraces != null) {
+                for (long fingerprint : newTraces) {
+                    sentTraces.forget(fingerprint);
+                }
+            }
+            throw e;
+        }
+    }
+
+    // 0 means "no session" to the receiver
+    private static long newSessionId() {
+        long id = new Random().nextLong();
+        return id != 0 ? id : 1;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.orslogger;
+
+final class CallSite {
+    static final CallSite UNKNOWN = new CallSite(null, 0);
+
+    final String fileName;
+    final int lineNumber;
+
+    CallSite(String fileName, int lineNumber) {
+        this.fileName = fileName;
+        this.lineNumber = lineNumber;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.orslogger;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the file and line of the code that called into OrsLogger, according to the
+ * configured {@link OrsLogger.CallerLocation} mode.
+ *
+ * The caller is found by skipping logger frames rather than by a fixed stack depth, so
+ * it works whether the app calls log() directly or goes through d()/i()/... Where the
+ * runtime has {@link StackWalker} (desktop JVMs) only the frames down to the caller are
+ * materialized. Android has no StackWalker, so there the whole stack is captured on every
+ * call; use ERRORS_ONLY or SAMPLED when that cost matters.
+ */
+final class CallerCapture {
+    private static final boolean HAS_STACK_WALKER = hasStackWalker();
+
+    private final OrsLogger.CallerLocation mode;
+    private final int sampleInterval;
+    private final AtomicInteger sampleCounter = new AtomicInteger();
+
+    CallerCapture(OrsLogger.CallerLocation mode, int sampleInterval) {
+        this.mode = mode;
+        this.sampleInterval = sampleInterval;
+    }
+
+    CallSite capture(OrsLogger.LogType type) {
+        switch (mode) {
+            case OFF:
+                return CallSite.UNKNOWN;
+            case ERRORS_ONLY:
+                if (type != OrsLogger.LogType.ERROR) {
+                    return CallSite.UNKNOWN;
+                }
+                break;
+            case SAMPLED:
+                if (Integer.remainderUnsigned(sampleCounter.getAndIncrement(), sampleInterval) != 0) {
+                    return CallSite.UNKNOWN;
+                }
+                break;
+            case ALWAYS:
+            default:
+                break;
+        }
+
+        if (HAS_STACK_WALKER) {
+            return Walker.capture();
+        }
+        // A fresh Throwable is cheaper than Thread.getStackTrace(), which goes through
+        // the VM's thread lookup and adds its own frames on top of ours
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            if (!isLoggerClass(frame.getClassName())) {
+                return new CallSite(frame.getFileName(), frame.getLineNumber());
+            }
+        }
+        return CallSite.UNKNOWN;
+    }
+
+    private static boolean isLoggerClass(String className) {
+        return className.equals(OrsLogger.class.getName())
+                || className.equals(CallerCapture.class.getName())
+                || className.equals(Walker.class.getName());
+    }
+
+    private static boolean hasStackWalker() {
+        try {
+            Class.forName("java.lang.StackWalker");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // Kept in its own class so runtimes without StackWalker never load a reference to it
+    private static final class Walker {
+        private static final StackWalker WALKER = StackWalker.getInstance();
+
+        static CallSite capture() {
+            Optional<StackWalker.StackFrame> caller = WALKER.walk(frames -> frames
+                    .dropWhile(frame -> isLoggerClass(frame.getClassName()))
+                    .findFirst());
+            return caller.map(frame -> new CallSite(frame.getFileName(), frame.getLineNumber()))
+                    .orElse(CallSite.UNKNOWN);
+        }
+    }
+}
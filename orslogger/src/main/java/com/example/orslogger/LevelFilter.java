@@ -0,0 +1,51 @@
+package com.example.orslogger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runtime-updatable minimum level table: one global minimum plus optional per-tag overrides.
+ * Reads are lock-free and allocation-free so a suppressed call costs only this check.
+ */
+final class LevelFilter {
+    private final Map<String, OrsLogger.LogType> tagLevels = new ConcurrentHashMap<>();
+    private volatile OrsLogger.LogType minLevel;
+    private volatile boolean hasTagLevels;
+
+    LevelFilter(OrsLogger.LogType minLevel) {
+        this.minLevel = minLevel;
+    }
+
+    boolean isLoggable(OrsLogger.LogType type, String tag) {
+        OrsLogger.LogType threshold = minLevel;
+        if (hasTagLevels && tag != null) {
+            OrsLogger.LogType tagLevel = tagLevels.get(tag);
+            if (tagLevel != null) {
+                threshold = tagLevel;
+            }
+        }
+        return type.getSeverity() >= threshold.getSeverity();
+    }
+
+    OrsLogger.LogType getMinLevel() {
+        return minLevel;
+    }
+
+    void setMinLevel(OrsLogger.LogType minLevel) {
+        this.minLevel = minLevel;
+    }
+
+    synchronized void setTagLevel(String tag, OrsLogger.LogType level) {
+        if (level == null) {
+            tagLevels.remove(tag);
+        } else {
+            tagLevels.put(tag, level);
+        }
+        hasTagLevels = !tagLevels.isEmpty();
+    }
+
+    synchronized void clearTagLevels() {
+        tagLevels.clear();
+        hasTagLevels = false;
+    }
+}
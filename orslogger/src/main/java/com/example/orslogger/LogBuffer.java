@@ -0,0 +1,217 @@
+package com.example.orslogger;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded buffer between the logging threads and the dispatcher, applying the configured
+ * {@link OrsLogger.OverflowPolicy} when the consumer falls behind.
+ *
+ * Records are kept in one FIFO per severity, so the lowest levels can be shed in O(1), and
+ * leave in emit order by merging the FIFOs on the order of arrival. Drops are counted per
+ * level until the dispatcher collects them for a report.
+ */
+final class LogBuffer {
+    private static final int LEVELS = OrsLogger.LogType.values().length;
+    private static final int LOW_LEVEL_SEVERITY_LIMIT = OrsLogger.LogType.INFO.getSeverity();
+
+    private final int capacity;
+    private final OrsLogger.OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    // Indexed by severity
+    private final ArrayDeque<LogRecord>[] queues;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Indexed by LogType ordinal; dropped since the last takeDropped()
+    private final long[] pendingDrops = new long[LEVELS];
+    private long droppedCount;
+    private long sampleCounter;
+    private long arrivals;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LogBuffer(int capacity, OrsLogger.OverflowPolicy policy, long blockTimeoutMs) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.queues = new ArrayDeque[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Adds the record unless the policy sheds it; returns whether it was accepted.
+     */
+    boolean offer(LogRecord record) {
+        int severity = record.type.getSeverity();
+        lock.lock();
+        try {
+            switch (policy) {
+                case BLOCK:
+                    long remaining = blockTimeoutNanos;
+                    while (size == capacity) {
+                        if (remaining <= 0) {
+                            return drop(record.type);
+                        }
+                        try {
+                            remaining = notFull.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return drop(record.type);
+                        }
+                    }
+                    break;
+                case DROP_LOWEST_LEVEL:
+                    if (size == capacity && !evictBelow(severity)) {
+                        return drop(record.type);
+                    }
+                    break;
+                case SAMPLE_LOW_LEVELS:
+                    if (size == capacity || (severity < LOW_LEVEL_SEVERITY_LIMIT && !sampleLowLevel())) {
+                        return drop(record.type);
+                    }
+                    break;
+                default:
+                    if (size == capacity) {
+                        return drop(record.type);
+                    }
+                    break;
+            }
+            record.order = ++arrivals;
+            queues[severity].addLast(record);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to the timeout for a record; null if none arrived.
+     */
+    LogRecord poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            LogRecord record = removeOldest();
+            notFull.signal();
+            return record;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves up to maxRecords records, oldest first, into the list; returns how many were moved.
+     */
+    int drainTo(List<LogRecord> out, int maxRecords) {
+        lock.lock();
+        try {
+            int moved = 0;
+            while (moved < maxRecords && size > 0) {
+                out.add(removeOldest());
+                moved++;
+            }
+            if (moved > 0) {
+                notFull.signalAll();
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Per-level drops (indexed by LogType ordinal) since the previous call, or null if none.
+     */
+    long[] takeDropped() {
+        lock.lock();
+        try {
+            long[] dropped = null;
+            for (int i = 0; i < LEVELS; i++) {
+                if (pendingDrops[i] > 0) {
+                    if (dropped == null) {
+                        dropped = new long[LEVELS];
+                    }
+                    dropped[i] = pendingDrops[i];
+                    pendingDrops[i] = 0;
+                }
+            }
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean drop(OrsLogger.LogType type) {
+        pendingDrops[type.ordinal()]++;
+        droppedCount++;
+        return false;
+    }
+
+    // Discards the oldest record of the lowest level present below the given severity
+    private boolean evictBelow(int severity) {
+        for (int s = 0; s < severity; s++) {
+            LogRecord victim = queues[s].pollFirst();
+            if (victim != null) {
+                size--;
+                drop(victim.type);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Keeps every record while less than half the buffer is used, then one in 2, 4, 8, ...
+    // each time the remaining free space halves
+    private boolean sampleLowLevel() {
+        int free = capacity - size;
+        int shift = 0;
+        while ((long) free << (shift + 1) <= capacity && shift < 30) {
+            shift++;
+        }
+        return (sampleCounter++ & ((1L << shift) - 1)) == 0;
+    }
+
+    private LogRecord removeOldest() {
+        ArrayDeque<LogRecord> oldest = null;
+        for (ArrayDeque<LogRecord> queue : queues) {
+            LogRecord head = queue.peekFirst();
+            if (head != null && (oldest == null || head.order < oldest.peekFirst().order)) {
+                oldest = queue;
+            }
+        }
+        size--;
+        return oldest.pollFirst();
+    }
+}
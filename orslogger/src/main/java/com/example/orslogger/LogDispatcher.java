@@ -0,0 +1,182 @@
+package com.example.orslogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background half of the async mode: callers only enqueue, and a single daemon thread
+ * drains the buffer into batches of up to batchSize records, waiting at most
+ * maxFlushDelayMs after the first record of a batch before sending it. Records shed by
+ * the buffer's overflow policy are reported by a WARNING record in the next batch.
+ *
+ * Sequence numbers are handed out here, as records leave the buffer, rather than at emit:
+ * a record the buffer sheds or evicts never takes one, so the viewer sees a contiguous
+ * sequence and counts only what went missing after sending as lost, not the drops it is
+ * already told about.
+ */
+final class LogDispatcher implements Runnable {
+    private static final long IDLE_POLL_MS = 500;
+
+    static final String TAG = "OrsLogger";
+
+    private final LogBuffer buffer;
+    private final LogSink sink;
+    private final int batchSize;
+    private final long maxFlushDelayNanos;
+    private final long coalesceWindowMs;
+    private final boolean consoleOutput;
+    // Records lost to failed sends; the buffer counts its own drops
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LogDispatcher(LogSink sink, OrsLogger.Config config) {
+        this.buffer = new LogBuffer(config.bufferCapacity, config.overflowPolicy, config.blockTimeoutMs);
+        this.sink = sink;
+        this.batchSize = config.batchSize;
+        this.maxFlushDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.maxFlushDelayMs);
+        this.coalesceWindowMs = config.coalesceWindowMs;
+        this.consoleOutput = config.consoleOutput;
+        this.thread = new Thread(this, "OrsLogger-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean enqueue(LogRecord record) {
+        return buffer.offer(record);
+    }
+
+    long getDroppedCount() {
+        return buffer.getDroppedCount() + failedCount.get();
+    }
+
+    int getQueueDepth() {
+        return buffer.size();
+    }
+
+    void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                LogRecord first = buffer.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxFlushDelayNanos;
+                    while (batch.size() < batchSize) {
+                        buffer.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0) {
+                            break;
+                        }
+                        LogRecord next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                number(batch);
+                coalesce(batch);
+                addDropReport(batch);
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+
+        // Deliver whatever was already accepted before shutting down
+        buffer.drainTo(batch, Integer.MAX_VALUE);
+        number(batch);
+        coalesce(batch);
+        addDropReport(batch);
+        while (!batch.isEmpty()) {
+            List<LogRecord> chunk = batch.subList(0, Math.min(batchSize, batch.size()));
+            dispatch(chunk);
+        }
+    }
+
+    private void dispatch(List<LogRecord> batch) {
+        try {
+            sink.send(batch);
+        } catch (RuntimeException e) {
+            // A failed send (e.g. an oversized transaction) must not kill the dispatcher
+            failedCount.addAndGet(batch.size());
+            e.printStackTrace();
+        }
+        if (consoleOutput) {
+            for (LogRecord record : batch) {
+                OrsLogger.printToConsole(record);
+            }
+        }
+        batch.clear();
+    }
+
+    private static void number(List<LogRecord> batch) {
+        for (LogRecord record : batch) {
+            record.sequence = OrsLogger.nextSequence();
+        }
+    }
+
+    /**
+     * Folds each run of identical consecutive records whose first and last timestamps are at
+     * most coalesceWindowMs apart into a single record carrying the repeat count.
+     */
+    private void coalesce(List<LogRecord> batch) {
+        if (coalesceWindowMs <= 0 || batch.size() < 2) {
+            return;
+        }
+        int kept = 0;
+        int runStart = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i < batch.size() && batch.get(i - 1).isRepeatedBy(batch.get(i))
+                    && batch.get(i).lastTimestamp - batch.get(runStart).timestamp <= coalesceWindowMs) {
+                continue;
+            }
+            // kept <= runStart, so this never overwrites a record that is still to be read
+            batch.set(kept++, fold(batch, runStart, i));
+            runStart = i;
+        }
+        batch.subList(kept, batch.size()).clear();
+    }
+
+    private static LogRecord fold(List<LogRecord> batch, int from, int to) {
+        LogRecord first = batch.get(from);
+        if (to - from == 1) {
+            return first;
+        }
+        int repeatCount = 0;
+        for (int i = from; i < to; i++) {
+            repeatCount += batch.get(i).repeatCount;
+        }
+        return new LogRecord(first, repeatCount, batch.get(to - 1).lastTimestamp);
+    }
+
+    private void addDropReport(List<LogRecord> batch) {
+        long[] dropped = buffer.takeDropped();
+        if (dropped == null) {
+            return;
+        }
+        long total = 0;
+        StringBuilder levels = new StringBuilder();
+        for (OrsLogger.LogType type : OrsLogger.LogType.values()) {
+            long count = dropped[type.ordinal()];
+            if (count > 0) {
+                total += count;
+                levels.append(levels.length() == 0 ? "" : ", ").append(type).append(' ').append(count);
+            }
+        }
+        String message = "Dropped " + total + " logs under backpressure (" + levels + ")";
+        batch.add(new LogRecord(OrsLogger.LogType.WARNING, TAG, message, System.currentTimeMillis(),
+                System.nanoTime(), OrsLogger.nextSequence(), CallSite.UNKNOWN, null));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.orslogger;
+
+import java.util.Objects;
+
+final class LogRecord {
+    final OrsLogger.LogType type;
+    final String tag;
+    final String message;
+    final long timestamp;
+    final long nanos;
+    // Assigned when the record leaves for the sink: at emit in synchronous mode, by the
+    // dispatcher in async mode, so records shed by the buffer never take a number
+    long sequence;
+    // Arrival order in the LogBuffer, which merges its per-level queues on it
+    long order;
+    final CallSite callSite;
+    final Throwable throwable;
+    // Identical records folded into this one, with sequence numbers sequence..sequence + repeatCount - 1
+    final int repeatCount;
+    final long lastTimestamp;
+
+    LogRecord(OrsLogger.LogType type, String tag, String message, long timestamp, long nanos,
+              long sequence, CallSite callSite, Throwable throwable) {
+        this.type = type;
+        this.tag = tag;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.nanos = nanos;
+        this.sequence = sequence;
+        this.callSite = callSite;
+        this.throwable = throwable;
+        this.repeatCount = 1;
+        this.lastTimestamp = timestamp;
+    }
+
+    LogRecord(LogRecord first, int repeatCount, long lastTimestamp) {
+        this.type = first.type;
+        this.tag = first.tag;
+        this.message = first.message;
+        this.timestamp = first.timestamp;
+        this.nanos = first.nanos;
+        this.sequence = first.sequence;
+        this.callSite = first.callSite;
+        this.throwable = first.throwable;
+        this.repeatCount = repeatCount;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    long lastSequence() {
+        return sequence + repeatCount - 1;
+    }
+
+    /**
+     * Whether the next record repeats this one and directly follows it in sequence.
+     */
+    boolean isRepeatedBy(LogRecord next) {
+        return next.sequence == lastSequence() + 1
+                && next.type == type
+                && throwable == null && next.throwable == null
+                && Objects.equals(next.tag, tag)
+                && Objects.equals(next.message, message)
+                && Objects.equals(next.callSite.fileName, callSite.fileName)
+                && next.callSite.lineNumber == callSite.lineNumber;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.orslogger;
+
+import java.util.List;
+
+interface LogSink {
+    void send(List<LogRecord> batch);
+}
@@ -0,0 +1,38 @@
+package com.example.orslogger;
+
+/**
+ * Expands "{}" placeholders in order with the string value of each argument.
+ * Only called once a log has passed the level check.
+ */
+final class MessageTemplate {
+    private static final String PLACEHOLDER = "{}";
+
+    private MessageTemplate() {
+    }
+
+    static String format(String template, Object... args) {
+        return format(template, args, args != null ? args.length : 0);
+    }
+
+    /**
+     * Formats with only the first count arguments.
+     */
+    static String format(String template, Object[] args, int count) {
+        if (template == null || count == 0) {
+            return template;
+        }
+
+        StringBuilder builder = new StringBuilder(template.length() + 16 * count);
+        int start = 0;
+        int argIndex = 0;
+        while (argIndex < count) {
+            int index = template.indexOf(PLACEHOLDER, start);
+            if (index < 0) {
+                break;
+            }
+            builder.append(template, start, index).append(args[argIndex++]);
+            start = index + PLACEHOLDER.length();
+        }
+        return builder.append(template, start, template.length()).toString();
+    }
+}
@@ -1,81 +1,498 @@
 package com.example.orslogger;
 
 import android.content.Context;
-import android.content.Intent;
 import android.util.Log;
 import android.widget.Toast;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class OrsLogger {
     private static final String RESET = "\u001B[0m";
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
+    private static final ThreadLocal<SimpleDateFormat> CONSOLE_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
+        }
+    };
     private static Context applicationContext;
+    private static LogSink sink;
+    private static volatile LogDispatcher dispatcher;
+    private static volatile boolean consoleOutput = true;
+    private static volatile CallerCapture callerCapture =
+            new CallerCapture(CallerLocation.ALWAYS, 1);
+    private static final LevelFilter levelFilter = new LevelFilter(LogType.VERBOSE);
+    // Last sequence number handed out to a record on its way to the sink
+    private static final AtomicLong lastSequence = new AtomicLong();
+    private static final AtomicLong emittedCount = new AtomicLong();
 
     public static void init(Context context) {
+        init(context, new Config());
+    }
+
+    public static void init(Context context, Config config) {
         applicationContext = context.getApplicationContext();
+        init(new BroadcastSink(applicationContext), config);
+    }
+
+    /**
+     * Installs a sink directly, for use on a plain JVM where there is no Context to broadcast from.
+     */
+    static void init(LogSink logSink, Config config) {
+        sink = logSink;
+        consoleOutput = config.consoleOutput;
+        callerCapture = new CallerCapture(config.callerLocation, config.callerSampleInterval);
+        levelFilter.setMinLevel(config.minLevel);
+
+        LogDispatcher previous = dispatcher;
+        dispatcher = config.async ? new LogDispatcher(sink, config) : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Number of logs discarded because the async buffer was full or a batch failed to send.
+     */
+    public static long getDroppedCount() {
+        LogDispatcher current = dispatcher;
+        return current != null ? current.getDroppedCount() : 0;
+    }
+
+    static long nextSequence() {
+        return lastSequence.incrementAndGet();
+    }
+
+    /**
+     * Number of logs that passed the level filter since the process started.
+     */
+    public static long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+    /**
+     * Logs waiting in the async buffer; always 0 in synchronous mode.
+     */
+    public static int getQueueDepth() {
+        LogDispatcher current = dispatcher;
+        return current != null ? current.getQueueDepth() : 0;
+    }
+
+    /**
+     * Sets the global minimum level; logs below it are discarded before any work is done.
+     * Can be changed at any time.
+     */
+    public static void setMinLevel(LogType minLevel) {
+        levelFilter.setMinLevel(minLevel);
+    }
+
+    public static LogType getMinLevel() {
+        return levelFilter.getMinLevel();
+    }
+
+    /**
+     * Overrides the minimum level for a single tag; pass null to fall back to the global level.
+     */
+    public static void setTagLevel(String tag, LogType minLevel) {
+        levelFilter.setTagLevel(tag, minLevel);
+    }
+
+    public static void clearTagLevels() {
+        levelFilter.clearTagLevels();
+    }
+
+    public static boolean isLoggable(LogType type, String tag) {
+        return levelFilter.isLoggable(type, tag);
+    }
+
+    public static class Config {
+        boolean async;
+        int bufferCapacity = 8192;
+        int batchSize = 128;
+        OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        long blockTimeoutMs = 10;
+        long maxFlushDelayMs = 50;
+        long coalesceWindowMs;
+        CallerLocation callerLocation = CallerLocation.ALWAYS;
+        int callerSampleInterval = 100;
+        LogType minLevel = LogType.VERBOSE;
+        boolean consoleOutput = true;
+
+        /**
+         * When enabled, log() only enqueues and a background thread sends batched broadcasts.
+         */
+        public Config setAsync(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        public Config setBufferCapacity(int bufferCapacity) {
+            if (bufferCapacity <= 0) {
+                throw new IllegalArgumentException("bufferCapacity must be positive");
+            }
+            this.bufferCapacity = bufferCapacity;
+            return this;
+        }
+
+        /**
+         * What log() does in async mode when the buffer is full; see {@link OverflowPolicy}.
+         */
+        public Config setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * For {@link OverflowPolicy#BLOCK}: how long log() waits for room before dropping the log.
+         */
+        public Config setBlockTimeoutMs(long blockTimeoutMs) {
+            if (blockTimeoutMs < 0) {
+                throw new IllegalArgumentException("blockTimeoutMs must not be negative");
+            }
+            this.blockTimeoutMs = blockTimeoutMs;
+            return this;
+        }
+
+        public Config setBatchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Config setMaxFlushDelayMs(long maxFlushDelayMs) {
+            if (maxFlushDelayMs < 0) {
+                throw new IllegalArgumentException("maxFlushDelayMs must not be negative");
+            }
+            this.maxFlushDelayMs = maxFlushDelayMs;
+            return this;
+        }
+
+        /**
+         * In async mode, folds consecutive identical logs (same level, tag, message and call site)
+         * sent in one batch into a single log with a repeat count, as long as the first and last
+         * are at most windowMs apart. 0, the default, turns coalescing off.
+         */
+        public Config setCoalesceWindowMs(long windowMs) {
+            if (windowMs < 0) {
+                throw new IllegalArgumentException("windowMs must not be negative");
+            }
+            this.coalesceWindowMs = windowMs;
+            return this;
+        }
+
+        public Config setCallerLocation(CallerLocation callerLocation) {
+            this.callerLocation = callerLocation;
+            return this;
+        }
+
+        /**
+         * For {@link CallerLocation#SAMPLED}: capture the location of one log in every sampleInterval.
+         */
+        public Config setCallerSampleInterval(int sampleInterval) {
+            if (sampleInterval <= 0) {
+                throw new IllegalArgumentException("sampleInterval must be positive");
+            }
+            this.callerSampleInterval = sampleInterval;
+            return this;
+        }
+
+        public Config setMinLevel(LogType minLevel) {
+            this.minLevel = minLevel;
+            return this;
+        }
+
+        /**
+         * Whether every log is also printed to System.out (which ends up in logcat).
+         */
+        public Config setConsoleOutput(boolean consoleOutput) {
+            this.consoleOutput = consoleOutput;
+            return this;
+        }
+    }
+
+    /**
+     * Controls when the file name and line number of the calling code are captured.
+     */
+    public enum CallerLocation {
+        OFF,
+        ERRORS_ONLY,
+        SAMPLED,
+        ALWAYS
+    }
+
+    /**
+     * How the async buffer sheds load when the receiver can't keep up. Dropped logs are
+     * counted per level and reported by a WARNING log from tag "OrsLogger".
+     */
+    public enum OverflowPolicy {
+        /** Wait up to the block timeout for room, then drop the new log. */
+        BLOCK,
+        /** Drop the new log. */
+        DROP_NEWEST,
+        /** Make room by discarding the oldest buffered log of the lowest level below the new one. */
+        DROP_LOWEST_LEVEL,
+        /** Keep a shrinking share of VERBOSE and DEBUG logs once the buffer is half full. */
+        SAMPLE_LOW_LEVELS
     }
 
     public enum LogType {
-        DEBUG("\u001B[34m"),  // Blue
-        INFO("\u001B[32m"),   // Green
-        ERROR("\u001B[31m"),  // Red
-        WARNING("\u001B[33m"), // Yellow
-        VERBOSE("\u001B[35m"); // Purple
+        DEBUG("\u001B[34m", 1),  // Blue
+        INFO("\u001B[32m", 2),   // Green
+        ERROR("\u001B[31m", 4),  // Red
+        WARNING("\u001B[33m", 3), // Yellow
+        VERBOSE("\u001B[35m", 0); // Purple
 
         private final String color;
+        private final int severity;
 
-        LogType(String color) {
+        LogType(String color, int severity) {
             this.color = color;
+            this.severity = severity;
         }
 
         public String getColor() {
             return color;
         }
+
+        /**
+         * Ordering used for level gating: VERBOSE < DEBUG < INFO < WARNING < ERROR.
+         */
+        public int getSeverity() {
+            return severity;
+        }
     }
 
     public static void log(LogType type, String tag, String message, Throwable throwable) {
-        String timestamp = DATE_FORMAT.format(new Date());
-        StackTraceElement caller = Thread.currentThread().getStackTrace()[4];
+        if (!levelFilter.isLoggable(type, tag)) {
+            return;
+        }
+        emit(type, tag, message, throwable);
+    }
+
+    private static void emit(LogType type, String tag, String message, Throwable throwable) {
+        emittedCount.incrementAndGet();
+        long timestamp = System.currentTimeMillis();
+        long nanos = System.nanoTime();
+        CallSite caller = callerCapture.capture(type);
+
+        // Async mode: hand off to the dispatcher, which numbers what it sends and also does the
+        // console output
+        LogDispatcher current = dispatcher;
+        if (current != null) {
+            current.enqueue(new LogRecord(type, tag, message, timestamp, nanos, 0, caller, throwable));
+            return;
+        }
+
+        LogRecord record = new LogRecord(type, tag, message, timestamp, nanos, nextSequence(), caller, throwable);
 
         // Send log to LogViewer app
-        if (applicationContext != null) {
-            Intent intent = new Intent("com.example.logviewer.LOG_BROADCAST");
-            intent.putExtra("type", type.name());
-            intent.putExtra("tag", tag);
-            intent.putExtra("message", message);
-            intent.putExtra("timestamp", timestamp);
-            intent.putExtra("fileName", caller.getFileName());
-            intent.putExtra("lineNumber", caller.getLineNumber());
-            applicationContext.sendBroadcast(intent);
+        if (sink != null) {
+            sink.send(Collections.singletonList(record));
         }
 
-        // Also print to console for debugging
-        System.out.println(String.format("%s: [%s] %s - %s", tag, type, timestamp, message));
+        if (consoleOutput) {
+            printToConsole(record);
+        }
+    }
+
+    static void printToConsole(LogRecord record) {
+        String timestamp = CONSOLE_DATE_FORMAT.get().format(new Date(record.timestamp));
+        if (record.repeatCount > 1) {
+            System.out.println(String.format("%s: [%s] %s - %s (x%d)", record.tag, record.type, timestamp,
+                    record.message, record.repeatCount));
+        } else {
+            System.out.println(String.format("%s: [%s] %s - %s", record.tag, record.type, timestamp, record.message));
+        }
 
-        if (throwable != null) {
-            throwable.printStackTrace();
+        if (record.throwable != null) {
+            record.throwable.printStackTrace();
         }
     }
 
+    // The "{}" template overloads below check the level before building the message, so a
+    // suppressed call allocates nothing (beyond the argument array for 3+ args). A Throwable
+    // passed as the last argument is logged as the throwable rather than formatted.
+    // The *Lazy variants only call the Supplier once the level check has passed; they have
+    // their own names because d(tag, null) would be ambiguous next to d(tag, String).
+
     public static void d(String tag, String message) {
         log(LogType.DEBUG, tag, message, null);
     }
 
+    public static void d(String tag, String template, Object arg) {
+        if (levelFilter.isLoggable(LogType.DEBUG, tag)) {
+            emitTemplate(LogType.DEBUG, tag, template, arg);
+        }
+    }
+
+    public static void d(String tag, String template, Object arg1, Object arg2) {
+        if (levelFilter.isLoggable(LogType.DEBUG, tag)) {
+            emitTemplate(LogType.DEBUG, tag, template, arg1, arg2);
+        }
+    }
+
+    public static void d(String tag, String template, Object arg1, Object arg2, Object... more) {
+        if (levelFilter.isLoggable(LogType.DEBUG, tag)) {
+            emitTemplate(LogType.DEBUG, tag, template, arg1, arg2, more);
+        }
+    }
+
+    public static void dLazy(String tag, Supplier<String> message) {
+        if (levelFilter.isLoggable(LogType.DEBUG, tag)) {
+            emit(LogType.DEBUG, tag, message.get(), null);
+        }
+    }
+
     public static void i(String tag, String message) {
         log(LogType.INFO, tag, message, null);
     }
 
+    public static void i(String tag, String template, Object arg) {
+        if (levelFilter.isLoggable(LogType.INFO, tag)) {
+            emitTemplate(LogType.INFO, tag, template, arg);
+        }
+    }
+
+    public static void i(String tag, String template, Object arg1, Object arg2) {
+        if (levelFilter.isLoggable(LogType.INFO, tag)) {
+            emitTemplate(LogType.INFO, tag, template, arg1, arg2);
+        }
+    }
+
+    public static void i(String tag, String template, Object arg1, Object arg2, Object... more) {
+        if (levelFilter.isLoggable(LogType.INFO, tag)) {
+            emitTemplate(LogType.INFO, tag, template, arg1, arg2, more);
+        }
+    }
+
+    public static void iLazy(String tag, Supplier<String> message) {
+        if (levelFilter.isLoggable(LogType.INFO, tag)) {
+            emit(LogType.INFO, tag, message.get(), null);
+        }
+    }
+
     public static void e(String tag, String message, Throwable throwable) {
         log(LogType.ERROR, tag, message, throwable);
     }
 
+    public static void e(String tag, String template, Object arg) {
+        if (levelFilter.isLoggable(LogType.ERROR, tag)) {
+            emitTemplate(LogType.ERROR, tag, template, arg);
+        }
+    }
+
+    public static void e(String tag, String template, Object arg1, Object arg2) {
+        if (levelFilter.isLoggable(LogType.ERROR, tag)) {
+            emitTemplate(LogType.ERROR, tag, template, arg1, arg2);
+        }
+    }
+
+    public static void e(String tag, String template, Object arg1, Object arg2, Object... more) {
+        if (levelFilter.isLoggable(LogType.ERROR, tag)) {
+            emitTemplate(LogType.ERROR, tag, template, arg1, arg2, more);
+        }
+    }
+
+    public static void eLazy(String tag, Supplier<String> message) {
+        eLazy(tag, message, null);
+    }
+
+    public static void eLazy(String tag, Supplier<String> message, Throwable throwable) {
+        if (levelFilter.isLoggable(LogType.ERROR, tag)) {
+            emit(LogType.ERROR, tag, message.get(), throwable);
+        }
+    }
+
     public static void w(String tag, String message) {
         log(LogType.WARNING, tag, message, null);
     }
 
+    public static void w(String tag, String template, Object arg) {
+        if (levelFilter.isLoggable(LogType.WARNING, tag)) {
+            emitTemplate(LogType.WARNING, tag, template, arg);
+        }
+    }
+
+    public static void w(String tag, String template, Object arg1, Object arg2) {
+        if (levelFilter.isLoggable(LogType.WARNING, tag)) {
+            emitTemplate(LogType.WARNING, tag, template, arg1, arg2);
+        }
+    }
+
+    public static void w(String tag, String template, Object arg1, Object arg2, Object... more) {
+        if (levelFilter.isLoggable(LogType.WARNING, tag)) {
+            emitTemplate(LogType.WARNING, tag, template, arg1, arg2, more);
+        }
+    }
+
+    public static void wLazy(String tag, Supplier<String> message) {
+        if (levelFilter.isLoggable(LogType.WARNING, tag)) {
+            emit(LogType.WARNING, tag, message.get(), null);
+        }
+    }
+
     public static void v(String tag, String message) {
         log(LogType.VERBOSE, tag, message, null);
     }
+
+    public static void v(String tag, String template, Object arg) {
+        if (levelFilter.isLoggable(LogType.VERBOSE, tag)) {
+            emitTemplate(LogType.VERBOSE, tag, template, arg);
+        }
+    }
+
+    public static void v(String tag, String template, Object arg1, Object arg2) {
+        if (levelFilter.isLoggable(LogType.VERBOSE, tag)) {
+            emitTemplate(LogType.VERBOSE, tag, template, arg1, arg2);
+        }
+    }
+
+    public static void v(String tag, String template, Object arg1, Object arg2, Object... more) {
+        if (levelFilter.isLoggable(LogType.VERBOSE, tag)) {
+            emitTemplate(LogType.VERBOSE, tag, template, arg1, arg2, more);
+        }
+    }
+
+    public static void vLazy(String tag, Supplier<String> message) {
+        if (levelFilter.isLoggable(LogType.VERBOSE, tag)) {
+            emit(LogType.VERBOSE, tag, message.get(), null);
+        }
+    }
+
+    private static void emitTemplate(LogType type, String tag, String template, Object arg) {
+        if (arg instanceof Throwable) {
+            emit(type, tag, template, (Throwable) arg);
+        } else {
+            emit(type, tag, MessageTemplate.format(template, arg), null);
+        }
+    }
+
+    private static void emitTemplate(LogType type, String tag, String template, Object arg1, Object arg2) {
+        if (arg2 instanceof Throwable) {
+            emit(type, tag, MessageTemplate.format(template, arg1), (Throwable) arg2);
+        } else {
+            emit(type, tag, MessageTemplate.format(template, arg1, arg2), null);
+        }
+    }
+
+    private static void emitTemplate(LogType type, String tag, String template, Object arg1, Object arg2,
+                                     Object[] more) {
+        int count = 2 + (more != null ? more.length : 0);
+        Object[] args = new Object[count];
+        args[0] = arg1;
+        args[1] = arg2;
+        if (more != null) {
+            System.arraycopy(more, 0, args, 2, more.length);
+        }
+        if (args[count - 1] instanceof Throwable) {
+            emit(type, tag, MessageTemplate.format(template, args, count - 1), (Throwable) args[count - 1]);
+        } else {
+            emit(type, tag, MessageTemplate.format(template, args, count), null);
+        }
+    }
 }
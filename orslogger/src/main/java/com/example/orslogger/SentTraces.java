@@ -0,0 +1,41 @@
+package com.example.orslogger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints whose full trace the viewer is believed to have. A fingerprint is forgotten
+ * again when its broadcast fails or the viewer asks for it, since it lost the trace (a lost
+ * broadcast, a restart, a clear or an eviction), so the next occurrence carries it in full.
+ * Safe to use from any thread.
+ */
+final class SentTraces {
+    private final int capacity;
+    private final Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param capacity past this many fingerprints the set starts over, re-sending traces
+     *                 rather than growing
+     */
+    SentTraces(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Whether the trace has to be attached in full, marking it as sent if so.
+     */
+    boolean markSent(long fingerprint) {
+        if (fingerprints.size() >= capacity) {
+            fingerprints.clear();
+        }
+        return fingerprints.add(fingerprint);
+    }
+
+    void forget(long fingerprint) {
+        fingerprints.remove(fingerprint);
+    }
+
+    int size() {
+        return fingerprints.size();
+    }
+}
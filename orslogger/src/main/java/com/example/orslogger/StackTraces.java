@@ -0,0 +1,52 @@
+package com.example.orslogger;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Fingerprinting and formatting of throwables for transport to the viewer.
+ *
+ * The fingerprint covers the exception classes and frames of the whole cause chain but not
+ * the messages, so the same failure at the same place gets the same fingerprint even when its
+ * message carries changing values.
+ */
+final class StackTraces {
+    private static final int MAX_CAUSES = 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StackTraces() {
+    }
+
+    /**
+     * Non-zero 64-bit fingerprint of the throwable's cause chain.
+     */
+    static long fingerprint(Throwable throwable) {
+        long hash = FNV_OFFSET;
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < MAX_CAUSES; depth++) {
+            hash = mix(hash, current.getClass().getName().hashCode());
+            for (StackTraceElement frame : current.getStackTrace()) {
+                hash = mix(hash, frame.getClassName().hashCode());
+                hash = mix(hash, frame.getMethodName().hashCode());
+                hash = mix(hash, frame.getLineNumber());
+            }
+            Throwable cause = current.getCause();
+            current = cause != current ? cause : null;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * The full trace as printed by {@link Throwable#printStackTrace()}.
+     */
+    static String format(Throwable throwable) {
+        StringWriter writer = new StringWriter(1024);
+        throwable.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.orslogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LevelFilterTest {
+    private final LevelFilter filter = new LevelFilter(OrsLogger.LogType.INFO);
+
+    @Test
+    public void globalLevelComparesBySeverity() {
+        assertFalse(filter.isLoggable(OrsLogger.LogType.VERBOSE, "Net"));
+        assertFalse(filter.isLoggable(OrsLogger.LogType.DEBUG, "Net"));
+        assertTrue(filter.isLoggable(OrsLogger.LogType.INFO, "Net"));
+        assertTrue(filter.isLoggable(OrsLogger.LogType.WARNING, "Net"));
+        assertTrue(filter.isLoggable(OrsLogger.LogType.ERROR, null));
+    }
+
+    @Test
+    public void tagLevelOverridesGlobalLevelBothWays() {
+        filter.setTagLevel("Net", OrsLogger.LogType.VERBOSE);
+        filter.setTagLevel("UI", OrsLogger.LogType.ERROR);
+
+        assertTrue(filter.isLoggable(OrsLogger.LogType.VERBOSE, "Net"));
+        assertFalse(filter.isLoggable(OrsLogger.LogType.WARNING, "UI"));
+        assertTrue(filter.isLoggable(OrsLogger.LogType.ERROR, "UI"));
+        assertFalse(filter.isLoggable(OrsLogger.LogType.DEBUG, "Repo"));
+        assertFalse(filter.isLoggable(OrsLogger.LogType.DEBUG, null));
+    }
+
+    @Test
+    public void removingTagLevelFallsBackToGlobalLevel() {
+        filter.setTagLevel("Net", OrsLogger.LogType.VERBOSE);
+        filter.setTagLevel("Net", null);
+        assertFalse(filter.isLoggable(OrsLogger.LogType.DEBUG, "Net"));
+
+        filter.setTagLevel("UI", OrsLogger.LogType.DEBUG);
+        filter.clearTagLevels();
+        assertFalse(filter.isLoggable(OrsLogger.LogType.DEBUG, "UI"));
+    }
+
+    @Test
+    public void globalLevelChangesApplyToTagsWithoutOverride() {
+        filter.setTagLevel("Net", OrsLogger.LogType.WARNING);
+        filter.setMinLevel(OrsLogger.LogType.VERBOSE);
+
+        assertTrue(filter.isLoggable(OrsLogger.LogType.VERBOSE, "Repo"));
+        assertFalse(filter.isLoggable(OrsLogger.LogType.INFO, "Net"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.orslogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LogBufferTest {
+    private long sequence;
+
+    @Test
+    public void dropNewestRejectsWhenFull() {
+        LogBuffer buffer = new LogBuffer(2, OrsLogger.OverflowPolicy.DROP_NEWEST, 0);
+        assertTrue(buffer.offer(record(OrsLogger.LogType.DEBUG)));
+        assertTrue(buffer.offer(record(OrsLogger.LogType.DEBUG)));
+        assertFalse(buffer.offer(record(OrsLogger.LogType.ERROR)));
+
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.getDroppedCount());
+        long[] dropped = buffer.takeDropped();
+        assertEquals(1, dropped[OrsLogger.LogType.ERROR.ordinal()]);
+        assertNull(buffer.takeDropped());
+    }
+
+    @Test
+    public void dropLowestLevelEvictsOldestOfLowestSeverity() {
+        LogBuffer buffer = new LogBuffer(3, OrsLogger.OverflowPolicy.DROP_LOWEST_LEVEL, 0);
+        LogRecord debug = record(OrsLogger.LogType.DEBUG);
+        LogRecord verbose = record(OrsLogger.LogType.VERBOSE);
+        LogRecord info = record(OrsLogger.LogType.INFO);
+        buffer.offer(debug);
+        buffer.offer(verbose);
+        buffer.offer(info);
+
+        LogRecord warning = record(OrsLogger.LogType.WARNING);
+        assertTrue(buffer.offer(warning));
+        assertEquals(3, buffer.size());
+        assertEquals(1, buffer.takeDropped()[OrsLogger.LogType.VERBOSE.ordinal()]);
+
+        // Nothing below VERBOSE to make room for
+        assertFalse(buffer.offer(record(OrsLogger.LogType.VERBOSE)));
+
+        List<LogRecord> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 10));
+        assertSame(debug, drained.get(0));
+        assertSame(info, drained.get(1));
+        assertSame(warning, drained.get(2));
+    }
+
+    @Test
+    public void dropLowestLevelRejectsWhenNothingIsLower() {
+        LogBuffer buffer = new LogBuffer(1, OrsLogger.OverflowPolicy.DROP_LOWEST_LEVEL, 0);
+        buffer.offer(record(OrsLogger.LogType.ERROR));
+        assertFalse(buffer.offer(record(OrsLogger.LogType.ERROR)));
+        assertFalse(buffer.offer(record(OrsLogger.LogType.INFO)));
+        assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void sampleLowLevelsThinsOutAsBufferFills() {
+        LogBuffer buffer = new LogBuffer(8, OrsLogger.OverflowPolicy.SAMPLE_LOW_LEVELS, 0);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(record(OrsLogger.LogType.DEBUG)));
+        }
+        // Half full: one in two low-level records is kept
+        int accepted = 0;
+        for (int i = 0; i < 4; i++) {
+            if (buffer.offer(record(OrsLogger.LogType.VERBOSE))) {
+                accepted++;
+            }
+        }
+        assertTrue(accepted >= 1 && accepted <= 2);
+        assertEquals(4 - accepted, buffer.getDroppedCount());
+
+        // Higher levels are never sampled
+        while (buffer.size() < 8) {
+            assertTrue(buffer.offer(record(OrsLogger.LogType.INFO)));
+        }
+        assertFalse(buffer.offer(record(OrsLogger.LogType.ERROR)));
+    }
+
+    @Test
+    public void blockGivesUpAfterTimeout() {
+        LogBuffer buffer = new LogBuffer(1, OrsLogger.OverflowPolicy.BLOCK, 20);
+        buffer.offer(record(OrsLogger.LogType.INFO));
+        long start = System.nanoTime();
+        assertFalse(buffer.offer(record(OrsLogger.LogType.INFO)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void blockWaitsForConsumer() throws InterruptedException {
+        LogBuffer buffer = new LogBuffer(1, OrsLogger.OverflowPolicy.BLOCK, 10_000);
+        buffer.offer(record(OrsLogger.LogType.INFO));
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                buffer.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        assertTrue(buffer.offer(record(OrsLogger.LogType.INFO)));
+        consumer.join();
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void recordsLeaveInArrivalOrder() throws InterruptedException {
+        LogBuffer buffer = new LogBuffer(100, OrsLogger.OverflowPolicy.DROP_NEWEST, 0);
+        OrsLogger.LogType[] types = OrsLogger.LogType.values();
+        for (int i = 0; i < 50; i++) {
+            buffer.offer(record(types[(i * 7) % types.length]));
+        }
+        long previous = buffer.poll(0, TimeUnit.MILLISECONDS).timestamp;
+        List<LogRecord> drained = new ArrayList<>();
+        buffer.drainTo(drained, 100);
+        assertEquals(49, drained.size());
+        for (LogRecord record : drained) {
+            assertTrue(record.timestamp > previous);
+            previous = record.timestamp;
+        }
+        assertNull(buffer.poll(0, TimeUnit.MILLISECONDS));
+    }
+
+    private LogRecord record(OrsLogger.LogType type) {
+        sequence++;
+        // Unnumbered, as from OrsLogger in async mode; the timestamp gives the emit order
+        return new LogRecord(type, "tag", "message " + sequence, sequence, 0, 0, CallSite.UNKNOWN, null);
+    }
+}
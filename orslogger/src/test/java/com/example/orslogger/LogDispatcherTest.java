@@ -0,0 +1,205 @@
+package com.example.orslogger;
+
+import com.example.logviewer.SequenceTracker;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LogDispatcherTest {
+    private final RecordingSink sink = new RecordingSink();
+    private LogDispatcher dispatcher;
+    private long sequence;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void sendsFullBatchesWithoutWaiting() throws InterruptedException {
+        dispatcher = new LogDispatcher(sink, config().setBatchSize(4).setMaxFlushDelayMs(10_000));
+        for (int i = 0; i < 8; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.INFO, "message " + i));
+        }
+
+        List<LogRecord> first = sink.next();
+        List<LogRecord> second = sink.next();
+        assertEquals(4, first.size());
+        assertEquals(4, second.size());
+        assertEquals("message 0", first.get(0).message);
+        assertEquals(first.get(0).sequence + 7, second.get(3).sequence);
+    }
+
+    @Test
+    public void flushesPartialBatchAfterDelay() throws InterruptedException {
+        dispatcher = new LogDispatcher(sink, config().setBatchSize(100).setMaxFlushDelayMs(100));
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.INFO, "message " + i));
+        }
+
+        List<LogRecord> batch = sink.next();
+        assertEquals(3, batch.size());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(80));
+    }
+
+    @Test
+    public void shutdownDeliversBufferedRecords() throws InterruptedException {
+        dispatcher = new LogDispatcher(sink, config().setBatchSize(100).setMaxFlushDelayMs(10_000));
+        for (int i = 0; i < 5; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.INFO, "message " + i));
+        }
+        dispatcher.shutdown();
+
+        assertEquals(5, sink.next().size());
+    }
+
+    @Test
+    public void failedSendIsCountedAsDropped() throws InterruptedException {
+        LogSink failing = batch -> {
+            throw new IllegalStateException("transaction too large");
+        };
+        dispatcher = new LogDispatcher(failing, config().setBatchSize(100).setMaxFlushDelayMs(0));
+        for (int i = 0; i < 3; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.INFO, "message " + i));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getDroppedCount() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(3, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void coalescesRepeatsWithinWindow() throws InterruptedException {
+        dispatcher = new LogDispatcher(sink, config().setBatchSize(6).setMaxFlushDelayMs(10_000).setCoalesceWindowMs(1000));
+        LogRecord first = record(OrsLogger.LogType.WARNING, "retrying");
+        dispatcher.enqueue(first);
+        for (int i = 0; i < 4; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.WARNING, "retrying"));
+        }
+        dispatcher.enqueue(record(OrsLogger.LogType.WARNING, "gave up"));
+
+        List<LogRecord> batch = sink.next();
+        assertEquals(2, batch.size());
+        LogRecord folded = batch.get(0);
+        assertEquals(5, folded.repeatCount);
+        assertEquals(first.timestamp, folded.timestamp);
+        assertEquals(first.timestamp + 4, folded.lastTimestamp);
+        // The folded record stands for five sequence numbers, so the next one follows them
+        assertEquals(folded.sequence + 5, batch.get(1).sequence);
+        assertEquals(1, batch.get(1).repeatCount);
+    }
+
+    @Test
+    public void coalescingStopsAtWindowAndThrowables() throws InterruptedException {
+        dispatcher = new LogDispatcher(sink, config().setBatchSize(7).setMaxFlushDelayMs(10_000).setCoalesceWindowMs(2));
+        // Timestamps one apart, so a window of 2 ms holds three of them
+        for (int i = 0; i < 5; i++) {
+            dispatcher.enqueue(record(OrsLogger.LogType.INFO, "tick"));
+        }
+        Throwable failure = new IllegalStateException();
+        for (int i = 0; i < 2; i++) {
+            sequence++;
+            dispatcher.enqueue(new LogRecord(OrsLogger.LogType.ERROR, "tag", "failed", sequence, 0, 0,
+                    CallSite.UNKNOWN, failure));
+        }
+
+        List<LogRecord> batch = sink.next();
+        assertEquals(4, batch.size());
+        assertEquals(3, batch.get(0).repeatCount);
+        assertEquals(2, batch.get(1).repeatCount);
+        assertEquals(1, batch.get(2).repeatCount);
+        assertEquals(1, batch.get(3).repeatCount);
+    }
+
+    @Test
+    public void backpressureDropsAreNotReportedAsLost() throws InterruptedException {
+        for (OrsLogger.OverflowPolicy policy : OrsLogger.OverflowPolicy.values()) {
+            assertNothingLost(policy);
+        }
+    }
+
+    // Stalls the sink until the buffer has shed records, then feeds everything that was sent
+    // to the viewer's sequence tracker
+    private void assertNothingLost(OrsLogger.OverflowPolicy policy) throws InterruptedException {
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink recorded = new RecordingSink();
+        LogSink stalling = batch -> {
+            stalled.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recorded.send(batch);
+        };
+        dispatcher = new LogDispatcher(stalling, config().setBufferCapacity(8).setBatchSize(4)
+                .setMaxFlushDelayMs(0).setOverflowPolicy(policy).setBlockTimeoutMs(0));
+        dispatcher.enqueue(record(OrsLogger.LogType.INFO, "first"));
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        OrsLogger.LogType[] types = OrsLogger.LogType.values();
+        for (int i = 0; i < 100; i++) {
+            dispatcher.enqueue(record(types[i % types.length], "message " + i));
+        }
+        assertTrue(policy.toString(), dispatcher.getDroppedCount() > 0);
+        release.countDown();
+
+        SequenceTracker tracker = new SequenceTracker(0);
+        boolean reported = false;
+        int received = 0;
+        List<LogRecord> batch;
+        while ((batch = recorded.batches.poll(500, TimeUnit.MILLISECONDS)) != null) {
+            for (LogRecord record : batch) {
+                assertTrue(tracker.onReceived("app", record.sequence, record.lastSequence(), record.timestamp,
+                        System.nanoTime(), (source, first, last, timestamp) -> { }));
+                reported |= record.message.startsWith("Dropped ");
+                received++;
+            }
+        }
+        tracker.expire(System.nanoTime() + TimeUnit.SECONDS.toNanos(1), (source, first, last, timestamp) -> { });
+        assertTrue(policy.toString(), reported);
+        assertEquals(policy.toString(), 101 - dispatcher.getDroppedCount() + 1, received);
+        assertEquals(policy.toString(), 0, tracker.getLostCount());
+        dispatcher.shutdown();
+    }
+
+    private static OrsLogger.Config config() {
+        return new OrsLogger.Config().setAsync(true).setConsoleOutput(false);
+    }
+
+    private LogRecord record(OrsLogger.LogType type, String message) {
+        // Numbered by the dispatcher, as from OrsLogger in async mode
+        sequence++;
+        return new LogRecord(type, "tag", message, sequence, 0, 0, CallSite.UNKNOWN, null);
+    }
+
+    private static final class RecordingSink implements LogSink {
+        private final BlockingQueue<List<LogRecord>> batches = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(List<LogRecord> batch) {
+            // The dispatcher reuses the list
+            batches.add(new ArrayList<>(batch));
+        }
+
+        List<LogRecord> next() throws InterruptedException {
+            List<LogRecord> batch = batches.poll(5, TimeUnit.SECONDS);
+            assertNotNull("No batch was sent", batch);
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.orslogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrsLoggerTest {
+    private final List<LogRecord> sent = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        OrsLogger.init(sent::addAll, new OrsLogger.Config().setConsoleOutput(false)
+                .setCallerLocation(OrsLogger.CallerLocation.OFF).setMinLevel(OrsLogger.LogType.INFO));
+    }
+
+    @After
+    public void tearDown() {
+        OrsLogger.setMinLevel(OrsLogger.LogType.VERBOSE);
+        OrsLogger.clearTagLevels();
+    }
+
+    @Test
+    public void suppressedCallsDoNotBuildTheMessage() {
+        OrsLogger.dLazy("Net", () -> {
+            throw new AssertionError("Supplier called for a suppressed log");
+        });
+        OrsLogger.d("Net", "value {}", new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("Argument formatted for a suppressed log");
+            }
+        });
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void tagLevelLetsLowLevelsThrough() {
+        OrsLogger.setTagLevel("Net", OrsLogger.LogType.VERBOSE);
+        OrsLogger.vLazy("Net", () -> "lazy");
+        OrsLogger.d("Net", "{} of {}", 1, 2);
+        OrsLogger.d("UI", "hidden");
+
+        assertEquals(2, sent.size());
+        assertEquals("lazy", sent.get(0).message);
+        assertEquals(OrsLogger.LogType.VERBOSE, sent.get(0).type);
+        assertEquals("1 of 2", sent.get(1).message);
+    }
+
+    @Test
+    public void tagLevelCanSilenceATag() {
+        OrsLogger.setTagLevel("Chatty", OrsLogger.LogType.ERROR);
+        OrsLogger.w("Chatty", "hidden");
+        OrsLogger.eLazy("Chatty", () -> "shown");
+        assertEquals(1, sent.size());
+        assertEquals("shown", sent.get(0).message);
+    }
+
+    @Test
+    public void trailingThrowableIsNotFormatted() {
+        IllegalStateException failure = new IllegalStateException("boom");
+        OrsLogger.e("Net", "failed after {} tries", 3, failure);
+        OrsLogger.eLazy("Net", () -> "lazy failure", failure);
+
+        assertEquals("failed after 3 tries", sent.get(0).message);
+        assertSame(failure, sent.get(0).throwable);
+        assertSame(failure, sent.get(1).throwable);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.orslogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SentTracesTest {
+    @Test
+    public void attachesEachTraceOnce() {
+        SentTraces sent = new SentTraces(16);
+        assertTrue(sent.markSent(7));
+        assertFalse(sent.markSent(7));
+        assertTrue(sent.markSent(8));
+    }
+
+    @Test
+    public void forgottenTraceIsSentAgain() {
+        SentTraces sent = new SentTraces(16);
+        sent.markSent(7);
+        // A failed broadcast, or the viewer asking for a trace it lost
+        sent.forget(7);
+        assertTrue(sent.markSent(7));
+        assertFalse(sent.markSent(7));
+    }
+
+    @Test
+    public void startsOverWhenFull() {
+        SentTraces sent = new SentTraces(2);
+        sent.markSent(1);
+        sent.markSent(2);
+        assertTrue(sent.markSent(3));
+        assertEquals(1, sent.size());
+        assertTrue(sent.markSent(1));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.orslogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StackTracesTest {
+    @Test
+    public void sameFailureHasSameFingerprintWhateverItsMessage() {
+        long[] fingerprints = new long[2];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = StackTraces.fingerprint(fail("id " + i));
+        }
+        assertEquals(fingerprints[0], fingerprints[1]);
+        assertNotEquals(0, fingerprints[0]);
+    }
+
+    @Test
+    public void differentPlaceOrCauseChangesFingerprint() {
+        long here = StackTraces.fingerprint(fail("x"));
+        long elsewhere = StackTraces.fingerprint(new IllegalStateException("x"));
+        long wrapped = StackTraces.fingerprint(new RuntimeException(fail("x")));
+        assertNotEquals(here, elsewhere);
+        assertNotEquals(here, wrapped);
+    }
+
+    @Test
+    public void formatIncludesCause() {
+        String trace = StackTraces.format(new RuntimeException("outer", fail("inner")));
+        assertTrue(trace.startsWith("java.lang.RuntimeException: outer"));
+        assertTrue(trace.contains("Caused by: java.lang.IllegalStateException: inner"));
+    }
+
+    private static IllegalStateException fail(String message) {
+        return new IllegalStateException(message);
+    }
+}